@@ -0,0 +1,236 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+class BuildCheckpoint implements Serializable {
+
+    private Utils util;
+    private int stage;
+    private HashSet<String> processed;
+    private int totalTokens, numberOfFiles;
+    private long id;
+    private transient ArrayList<String> recent;
+    private transient int segments, vocabularySize;
+
+    /**
+     * Creates a new BuildCheckpoint object with the progress of a build of the Index:
+     * <p>
+     * 1- Util: the Utils object of the build, with the partial Index and the statistics of the collection.
+     * 2- Stage: the stage of the build (1: reading the documents; 2: removing the stop words; 3: stemming and
+     * loading the Index).
+     * 3- Processed: the names of the files already processed in the stage.
+     * 4- TotalTokens and NumberOfFiles: the tokens counted in the stage and the documents read.
+     * 5- Id: the id of the last full checkpoint, written at the start of each stage. The checkpoints saved
+     * later in the stage are segments 'path.1', 'path.2', ... with only the changes since the previous one,
+     * so saving a checkpoint costs the files processed since the last one instead of the whole Index.
+     * 6- Recent: the files processed since the last checkpoint (null until the full checkpoint of the stage
+     * has been saved).
+     * 7- Segments and VocabularySize: the segments saved in the stage and the words of the TermVocabulary when
+     * the last checkpoint was saved.
+     *
+     * @param util the Utils object of the build.
+     */
+    BuildCheckpoint(Utils util) {
+
+        this.util = util;
+        stage = 1;
+        processed = new HashSet<>();
+        totalTokens = 0;
+        numberOfFiles = 0;
+    }
+
+    /**
+     * Loads the last checkpoint of a build: the full checkpoint of the stage and then, in order, its segments.
+     * A segment of a previous full checkpoint or a missing segment ends the load.
+     *
+     * @param path the path of the checkpoint.
+     * @return the checkpoint or null if there is no checkpoint.
+     */
+    @SuppressWarnings("unchecked")
+    static BuildCheckpoint load(String path) throws Exception {
+
+        if (!Files.exists(Paths.get(path))) {
+            return null;
+        }
+
+        BuildCheckpoint checkpoint;
+
+        try (ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            checkpoint = (BuildCheckpoint) is.readObject();
+        }
+
+        checkpoint.recent = new ArrayList<>();
+
+        for (int i = 1; Files.exists(Paths.get(path + "." + i)); ++i) {
+            try (ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path + "." + i)))) {
+
+                if (is.readLong() != checkpoint.id) {
+                    break;
+                }
+
+                checkpoint.processed.addAll((ArrayList<String>) is.readObject());
+                checkpoint.totalTokens = is.readInt();
+                checkpoint.numberOfFiles = is.readInt();
+                checkpoint.util.replay((ArrayList<String>) is.readObject(), (ArrayList<BuildOperation>) is.readObject());
+            }
+
+            checkpoint.segments = i;
+        }
+
+        checkpoint.vocabularySize = checkpoint.util.getIndex().getVocabulary().size();
+        checkpoint.util.startJournal();
+
+        return checkpoint;
+    }
+
+    /**
+     * Saves the checkpoint in a temporal file that is moved to the path atomically, so a failure while saving
+     * never loses the previous checkpoint. The first checkpoint of a stage saves everything; the next ones only
+     * save a segment with the files processed, the new words of the TermVocabulary and the changes of the
+     * Utils since the previous checkpoint.
+     *
+     * @param path the path of the checkpoint.
+     */
+    void save(String path) throws IOException {
+
+        TermVocabulary vocabulary = util.getIndex().getVocabulary();
+        Path file = Paths.get(recent == null ? path : path + "." + (segments + 1));
+        Path temporal = Paths.get(file + ".tmp");
+
+        try (ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+
+            if (recent == null) {
+                id = System.nanoTime();
+                util.startJournal();
+                os.writeObject(this);
+            } else {
+                os.writeLong(id);
+                os.writeObject(recent);
+                os.writeInt(totalTokens);
+                os.writeInt(numberOfFiles);
+                os.writeObject(new ArrayList<>(vocabulary.getTerms().subList(vocabularySize, vocabulary.size())));
+                os.writeObject(util.takeJournal());
+            }
+        }
+
+        Files.move(temporal, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (recent == null) {
+            deleteSegments(path);
+            recent = new ArrayList<>();
+            segments = 0;
+        } else {
+            ++segments;
+            recent.clear();
+        }
+
+        vocabularySize = vocabulary.size();
+    }
+
+    /**
+     * Deletes the segments of a checkpoint.
+     *
+     * @param path the path of the checkpoint.
+     */
+    private static void deleteSegments(String path) throws IOException {
+
+        for (int i = 1; Files.deleteIfExists(Paths.get(path + "." + i)); ++i) {
+            //Deletes until the first missing segment
+        }
+    }
+
+    /**
+     * Deletes the checkpoint and its segments once the build has finished.
+     *
+     * @param path the path of the checkpoint.
+     */
+    static void delete(String path) throws IOException {
+
+        Files.deleteIfExists(Paths.get(path));
+        deleteSegments(path);
+    }
+
+    /**
+     * Moves the build to the next stage, forgetting the files processed and the tokens counted in the previous one.
+     *
+     * @param stage the new stage.
+     */
+    void startStage(int stage) {
+
+        this.stage = stage;
+        processed.clear();
+        totalTokens = 0;
+        recent = null;
+    }
+
+    /**
+     * Records that a file has been processed in the current stage.
+     *
+     * @param name          the name of the file.
+     * @param totalTokens   the tokens counted in the stage so far.
+     * @param numberOfFiles the documents read so far.
+     * @param interval      the number of files between two checkpoints (0: never).
+     * @return true if a checkpoint should be saved now.
+     */
+    boolean process(String name, int totalTokens, int numberOfFiles, int interval) {
+
+        processed.add(name);
+
+        if (recent != null) {
+            recent.add(name);
+        }
+
+        this.totalTokens = totalTokens;
+        this.numberOfFiles = numberOfFiles;
+
+        return interval > 0 && processed.size() % interval == 0;
+    }
+
+    /**
+     * @param name the name of a file.
+     * @return true if the file was already processed in the current stage.
+     */
+    boolean isProcessed(String name) {
+        return processed.contains(name);
+    }
+
+    /**
+     * @return The number of files already processed in the current stage.
+     */
+    int getProcessed() {
+        return processed.size();
+    }
+
+    /**
+     * @return The Utils object of the build.
+     */
+    Utils getUtils() {
+        return util;
+    }
+
+    /**
+     * @return The stage of the build.
+     */
+    int getStage() {
+        return stage;
+    }
+
+    /**
+     * @return The tokens counted in the current stage.
+     */
+    int getTotalTokens() {
+        return totalTokens;
+    }
+
+    /**
+     * @return The documents read.
+     */
+    int getNumberOfFiles() {
+        return numberOfFiles;
+    }
+
+}
@@ -0,0 +1,76 @@
+import java.io.Serializable;
+import java.util.HashSet;
+
+class BuildOperation implements Serializable {
+
+    static final int DOCUMENT_INFO = 0, REMOVE_DOCUMENT_INFO = 1, TOKENS = 2, STOP_WORDS = 3, STEM_WORDS = 4, DELETE = 5;
+
+    private int type;
+    private String name;
+    private String[] words;
+    private DocumentInfo documentInfo;
+    private HashSet<String> surfaceForms;
+
+    /**
+     * Creates a new BuildOperation object, a change of the Utils of a build recorded since the last checkpoint
+     * so it can be saved as a small segment and replayed when the build is resumed:
+     * <p>
+     * 1- Type: DOCUMENT_INFO, REMOVE_DOCUMENT_INFO, TOKENS, STOP_WORDS, STEM_WORDS or DELETE.
+     * 2- Name: the name of the document (or of its file in the stage).
+     * 3- Words: the tokens counted (TOKENS and STOP_WORDS), the stem words loaded (STEM_WORDS) or the stem words
+     * of the title (DOCUMENT_INFO and REMOVE_DOCUMENT_INFO).
+     * 4- DocumentInfo: the information of the document added (only DOCUMENT_INFO).
+     * 5- SurfaceForms: the words of the completions of the document (only DOCUMENT_INFO and
+     * REMOVE_DOCUMENT_INFO, null if they are not counted).
+     *
+     * @param type         the type of the operation.
+     * @param name         the name of the document.
+     * @param words        the words of the operation.
+     * @param documentInfo the information of the document.
+     * @param surfaceForms the words of the completions of the document.
+     */
+    BuildOperation(int type, String name, String[] words, DocumentInfo documentInfo, HashSet<String> surfaceForms) {
+
+        this.type = type;
+        this.name = name;
+        this.words = words;
+        this.documentInfo = documentInfo;
+        this.surfaceForms = surfaceForms;
+    }
+
+    /**
+     * @return The type of the operation.
+     */
+    int getType() {
+        return type;
+    }
+
+    /**
+     * @return The name of the document.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return The words of the operation.
+     */
+    String[] getWords() {
+        return words;
+    }
+
+    /**
+     * @return The information of the document (only DOCUMENT_INFO).
+     */
+    DocumentInfo getDocumentInfo() {
+        return documentInfo;
+    }
+
+    /**
+     * @return The words of the completions of the document (null if they are not counted).
+     */
+    HashSet<String> getSurfaceForms() {
+        return surfaceForms;
+    }
+
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+class CentroidIndex {
+
+    private int[] offsets, clusters;
+    private double[] weights;
+
+    /**
+     * Creates a new CentroidIndex object, an inverted index of the sparse leaders of the clusters used to find
+     * the closest leader of each document without comparing it with every leader word by word:
+     * <p>
+     * 1- Offsets: the position of the first leader of each word in Clusters and Weights.
+     * 2- Clusters and Weights: the leaders that contain each word and the weight of the word in them.
+     *
+     * @param leaderTerms    the ids of the words of each leader.
+     * @param leaderWeights  the weights of the words of each leader.
+     * @param dictionarySize the number of words of the dictionary.
+     */
+    CentroidIndex(int[][] leaderTerms, double[][] leaderWeights, int dictionarySize) {
+
+        offsets = new int[dictionarySize + 1];
+
+        for (int[] terms : leaderTerms) {
+            for (int term : terms) {
+                ++offsets[term + 1];
+            }
+        }
+
+        for (int term = 0; term < dictionarySize; ++term) {
+            offsets[term + 1] += offsets[term];
+        }
+
+        int[] positions = Arrays.copyOf(offsets, dictionarySize);
+        clusters = new int[offsets[dictionarySize]];
+        weights = new double[offsets[dictionarySize]];
+
+        for (int cluster = 0; cluster < leaderTerms.length; ++cluster) {
+            for (int i = 0; i < leaderTerms[cluster].length; ++i) {
+                int position = positions[leaderTerms[cluster][i]]++;
+                clusters[position] = cluster;
+                weights[position] = leaderWeights[cluster][i];
+            }
+        }
+    }
+
+    /**
+     * Finds the leader most similar to a document (the first one if there is a tie).
+     *
+     * @param forwardIndex the vectors of the documents.
+     * @param document     the id of the document.
+     * @param scores       a buffer with a position for each cluster.
+     * @return the id of the closest cluster.
+     */
+    int closest(ForwardIndex forwardIndex, int document, double[] scores) {
+
+        int[] terms = forwardIndex.getTerms(document);
+        double[] documentWeights = forwardIndex.getWeights(document);
+        Arrays.fill(scores, 0.0);
+
+        for (int i = 0; i < terms.length; ++i) {
+            for (int position = offsets[terms[i]]; position < offsets[terms[i] + 1]; ++position) {
+                scores[clusters[position]] += documentWeights[i] * weights[position];
+            }
+        }
+
+        int best = 0;
+
+        for (int cluster = 1; cluster < scores.length; ++cluster) {
+            if (scores[cluster] > scores[best]) {
+                best = cluster;
+            }
+        }
+
+        return best;
+    }
+
+}
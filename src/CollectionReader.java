@@ -0,0 +1,202 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+class CollectionReader implements Closeable {
+
+    private static final Pair<File, ByteBuffer> END = new Pair<>(null, null);
+
+    private BlockingQueue<Pair<File, ByteBuffer>> queue;
+    private ConcurrentHashMap<File, IOException> errors;
+    private Thread reader;
+    private volatile IOException error;
+    private volatile long bytesRead, readTime;
+    private long waitTime;
+
+    /**
+     * Creates a new CollectionReader object that reads the documents of a directory in a background thread,
+     * ahead of the documents being analyzed:
+     * <p>
+     * 1- Queue: the documents already read and not yet analyzed (at most readAhead documents).
+     * 2- Reader: the thread that walks the directory and reads the documents.
+     * 3- Errors: the error of each document that could not be read, until it is returned by getContent.
+     *
+     * @param directory the directory of the documents's collection.
+     * @param readAhead the maximum number of documents read ahead.
+     */
+    CollectionReader(Path directory, int readAhead) {
+
+        queue = new ArrayBlockingQueue<>(Math.max(1, readAhead));
+        errors = new ConcurrentHashMap<>();
+        reader = new Thread(() -> readAll(directory), "collection-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Walks the directory and puts the content of each regular file in the queue, waiting while the queue is
+     * full. A file that cannot be read is put without content and its error is kept, so only that document is
+     * skipped. The end of the collection is always marked with an empty Pair, even if the walk fails.
+     *
+     * @param directory the directory of the documents's collection.
+     */
+    private void readAll(Path directory) {
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    queue.put(readDocument(path));
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            error = e.getCause();
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            error = new IOException("The collection could not be read", e);
+        } finally {
+            if (!Thread.currentThread().isInterrupted()) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a document, keeping the error if it cannot be read.
+     *
+     * @param path the path of the document.
+     * @return a Pair with the file of the document and its content (null if it could not be read).
+     */
+    private Pair<File, ByteBuffer> readDocument(Path path) {
+
+        File file = path.toFile();
+
+        try {
+            return new Pair<>(file, read(path));
+        } catch (IOException e) {
+            errors.put(file, e);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            errors.put(file, new IOException("The document could not be read", e));
+        }
+
+        return new Pair<>(file, null);
+    }
+
+    /**
+     * Reads the whole content of a file in a buffer.
+     *
+     * @param path the path of the file.
+     * @return a buffer with the content of the file.
+     */
+    private ByteBuffer read(Path path) throws IOException {
+
+        long start = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The document is larger than " + Integer.MAX_VALUE + " bytes");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                //Reads until the buffer is full or the end of the file
+            }
+
+            buffer.flip();
+            bytesRead += buffer.limit();
+            readTime += System.nanoTime() - start;
+
+            return buffer;
+        }
+    }
+
+    /**
+     * Returns the next document of the collection, waiting until it has been read.
+     *
+     * @return a Pair with the file of the document and its content (read it with getContent), or null if there
+     * are no more documents.
+     */
+    Pair<File, ByteBuffer> next() throws IOException, InterruptedException {
+
+        long start = System.nanoTime();
+        Pair<File, ByteBuffer> document = queue.take();
+        waitTime += System.nanoTime() - start;
+
+        if (document == END) {
+            queue.put(END);
+
+            if (error != null) {
+                throw error;
+            }
+
+            return null;
+        }
+
+        return document;
+    }
+
+    /**
+     * Returns the content of a document returned by next().
+     *
+     * @param document the document.
+     * @return the content of the document.
+     * @throws IOException the error of the document if it could not be read.
+     */
+    ByteBuffer getContent(Pair<File, ByteBuffer> document) throws IOException {
+
+        if (document.getSecond() == null) {
+            IOException e = errors.remove(document.getFirst());
+            throw e != null ? e : new IOException("The document could not be read");
+        }
+
+        return document.getSecond();
+    }
+
+    /**
+     * @return The number of bytes read.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The seconds spent by the background thread reading the documents.
+     */
+    double getReadSeconds() {
+        return readTime / 1e9;
+    }
+
+    /**
+     * @return The seconds the analysis has waited for documents that had not been read yet.
+     */
+    double getWaitSeconds() {
+        return waitTime / 1e9;
+    }
+
+    /**
+     * Stops reading the collection.
+     */
+    @Override
+    public void close() {
+        reader.interrupt();
+    }
+
+}
@@ -0,0 +1,141 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+class CompletionTrie implements Serializable {
+
+    private String[] words;
+    private int[] frequencies;
+    private char[] labels;
+    private int[] firstChild, children;
+    private int[][] top;
+
+    /**
+     * Creates a new CompletionTrie object with the words of the collection, where each node keeps its best
+     * completions already calculated:
+     * <p>
+     * 1- Words and Frequencies: the sorted words and the number of documents that contain each one.
+     * 2- Labels: the character of each node. The nodes are numbered in breadth-first order, so the children of
+     * a node are contiguous and sorted by character.
+     * 3- FirstChild and Children: the first child and the number of children of each node.
+     * 4- Top: the ids of the words with the highest frequency below each node, sorted highest to lowest.
+     *
+     * @param documentFrequencies the words and the number of documents that contain each one.
+     * @param size                the number of completions kept in each node.
+     */
+    CompletionTrie(HashMap<String, Integer> documentFrequencies, int size) {
+
+        words = documentFrequencies.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        frequencies = new int[words.length];
+
+        int capacity = 1;
+        for (int i = 0; i < words.length; ++i) {
+            frequencies[i] = documentFrequencies.get(words[i]);
+            capacity += words[i].length();
+        }
+
+        labels = new char[capacity];
+        firstChild = new int[capacity];
+        children = new int[capacity];
+        int[] low = new int[capacity], high = new int[capacity], depth = new int[capacity], own = new int[capacity];
+        high[0] = words.length;
+        int nodes = 1;
+
+        for (int node = 0; node < nodes; ++node) {
+
+            int i = low[node];
+            own[node] = -1;
+
+            if (i < high[node] && words[i].length() == depth[node]) {
+                own[node] = i++;
+            }
+
+            firstChild[node] = nodes;
+
+            while (i < high[node]) {
+                char label = words[i].charAt(depth[node]);
+                int j = i;
+
+                while (j < high[node] && words[j].charAt(depth[node]) == label) {
+                    ++j;
+                }
+
+                labels[nodes] = label;
+                low[nodes] = i;
+                high[nodes] = j;
+                depth[nodes] = depth[node] + 1;
+                ++nodes;
+                i = j;
+            }
+
+            children[node] = nodes - firstChild[node];
+        }
+
+        labels = Arrays.copyOf(labels, nodes);
+        firstChild = Arrays.copyOf(firstChild, nodes);
+        children = Arrays.copyOf(children, nodes);
+        top = new int[nodes][];
+
+        for (int node = nodes - 1; node >= 0; --node) {
+
+            ArrayList<Integer> candidates = new ArrayList<>();
+
+            if (own[node] != -1) {
+                candidates.add(own[node]);
+            }
+
+            for (int child = firstChild[node]; child < firstChild[node] + children[node]; ++child) {
+                for (int word : top[child]) {
+                    candidates.add(word);
+                }
+            }
+
+            candidates.sort((a, b) -> frequencies[a] != frequencies[b] ? frequencies[b] - frequencies[a] : a - b);
+            top[node] = new int[Math.min(size, candidates.size())];
+
+            for (int i = 0; i < top[node].length; ++i) {
+                top[node][i] = candidates.get(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the best completions of a prefix, walking the trie one character at a time.
+     *
+     * @param prefix the prefix typed.
+     * @return an array of Pairs sorted highest to lowest (by frequency) with:
+     * First: the completion.
+     * Second: the number of documents that contain it.
+     */
+    ArrayList<Pair<String, Integer>> complete(String prefix) {
+
+        ArrayList<Pair<String, Integer>> completions = new ArrayList<>();
+        int node = 0;
+
+        for (int i = 0; i < prefix.length(); ++i) {
+            int child = Arrays.binarySearch(labels, firstChild[node], firstChild[node] + children[node], prefix.charAt(i));
+
+            if (child < 0) {
+                return completions;
+            }
+
+            node = child;
+        }
+
+        for (int word : top[node]) {
+            completions.add(new Pair<>(words[word], frequencies[word]));
+        }
+
+        return completions;
+    }
+
+    /**
+     * @return The number of nodes of the trie.
+     */
+    int size() {
+        return labels.length;
+    }
+
+}
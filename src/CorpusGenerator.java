@@ -0,0 +1,177 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+class CorpusGenerator {
+
+    private static final String[] FUNCTION_WORDS = {"de", "la", "que", "el", "en", "y", "a", "los", "se", "del",
+            "las", "un", "por", "con", "no", "una", "su", "para", "es", "al", "lo", "como", "mas", "pero", "sus"};
+    private static final String[] ONSETS = {"b", "c", "d", "f", "g", "l", "m", "n", "p", "r", "s", "t", "v", "br",
+            "cr", "pr", "tr", "pl", "ch", "ll", "\u00f1", "j", "z", "qu"};
+    private static final String[] VOWELS = {"a", "e", "i", "o", "u", "a", "e", "o", "\u00e1", "\u00e9", "\u00ed", "\u00f3", "ie", "ue"};
+    private static final String[] ENDINGS = {"", "", "", "s", "n", "r", "l", "ci\u00f3n", "dad", "mente", "ado", "ida",
+            "ores", "anza", "ismo"};
+
+    private String[] vocabulary;
+    private double[] cumulative;
+    private Random random;
+
+    /**
+     * Creates a new CorpusGenerator object that writes synthetic HTML documents in a Spanish-like language:
+     * <p>
+     * 1- Vocabulary: the words of the language sorted by rank. The first ones are Spanish function words and the
+     * rest are made of Spanish syllables and endings.
+     * 2- Cumulative: the cumulative probability of each rank, following a Zipf distribution.
+     * 3- Random: the generator of the words, with a fixed seed so the collections can be reproduced.
+     *
+     * @param vocabularySize the number of different words.
+     * @param exponent       the exponent of the Zipf distribution (about 1 for natural languages).
+     * @param seed           the seed of the generator.
+     */
+    CorpusGenerator(int vocabularySize, double exponent, long seed) {
+
+        random = new Random(seed);
+        vocabulary = new String[Math.max(vocabularySize, FUNCTION_WORDS.length)];
+        cumulative = new double[vocabulary.length];
+        HashSet<String> used = new HashSet<>(Arrays.asList(FUNCTION_WORDS));
+
+        System.arraycopy(FUNCTION_WORDS, 0, vocabulary, 0, FUNCTION_WORDS.length);
+
+        for (int rank = FUNCTION_WORDS.length; rank < vocabulary.length; ++rank) {
+            String word;
+            do {
+                word = newWord();
+            } while (!used.add(word));
+            vocabulary[rank] = word;
+        }
+
+        double sum = 0.0;
+
+        for (int rank = 0; rank < vocabulary.length; ++rank) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+
+        for (int rank = 0; rank < vocabulary.length; ++rank) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    /**
+     * @return A new word of two to four syllables with a Spanish ending.
+     */
+    private String newWord() {
+
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+
+        for (int i = 0; i < syllables; ++i) {
+            word.append(ONSETS[random.nextInt(ONSETS.length)]);
+            word.append(VOWELS[random.nextInt(VOWELS.length)]);
+        }
+
+        word.append(ENDINGS[random.nextInt(ENDINGS.length)]);
+
+        return word.toString();
+    }
+
+    /**
+     * @return A word of the vocabulary chosen with the Zipf distribution.
+     */
+    String nextWord() {
+
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return vocabulary[Math.min(rank < 0 ? -rank - 1 : rank, vocabulary.length - 1)];
+    }
+
+    /**
+     * @return The rank of a function word or the number of function words if it is not one of them.
+     */
+    private static int rankOf(String word) {
+
+        for (int rank = 0; rank < FUNCTION_WORDS.length; ++rank) {
+            if (FUNCTION_WORDS[rank].equals(word)) {
+                return rank;
+            }
+        }
+
+        return FUNCTION_WORDS.length;
+    }
+
+    /**
+     * @return A word of the vocabulary that is not a function word, chosen with the Zipf distribution.
+     */
+    String nextContentWord() {
+
+        String word;
+
+        do {
+            word = nextWord();
+        } while (rankOf(word) < FUNCTION_WORDS.length);
+
+        return word;
+    }
+
+    /**
+     * Writes a collection of documents named 'doc<number>.html', each one with a title and paragraphs of
+     * sentences. The length of each document is chosen uniformly between half and one and a half times the
+     * average length.
+     *
+     * @param directory     the directory of the collection.
+     * @param documents     the number of documents.
+     * @param averageLength the average number of words of a document.
+     */
+    void generate(File directory, int documents, int averageLength) throws IOException {
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create the directory '" + directory + "'.");
+        }
+
+        for (int document = 0; document < documents; ++document) {
+
+            StringBuilder html = new StringBuilder();
+            StringBuilder title = new StringBuilder();
+            int titleLength = 2 + random.nextInt(4);
+
+            for (int i = 0; i < titleLength; ++i) {
+                title.append(i == 0 ? "" : " ").append(nextContentWord());
+            }
+
+            html.append("<html><head><meta charset=\"UTF-8\"><title>").append(title).append("</title></head><body>");
+            html.append("<h1>").append(title).append("</h1>\n<p>");
+
+            int length = averageLength / 2 + random.nextInt(averageLength + 1);
+            int sentence = 0, paragraph = 0;
+
+            for (int i = 0; i < length; ++i) {
+
+                String word = nextWord();
+                html.append(sentence == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                ++sentence;
+
+                if (sentence > 6 && random.nextInt(8) == 0) {
+                    html.append(". ");
+                    sentence = 0;
+                    ++paragraph;
+
+                    if (paragraph > 3 && random.nextInt(4) == 0) {
+                        html.append("</p>\n<p>");
+                        paragraph = 0;
+                    }
+                } else {
+                    html.append(" ");
+                }
+            }
+
+            html.append(".</p></body></html>\n");
+
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, "doc" + document + ".html")),
+                    StandardCharsets.UTF_8)) {
+                writer.write(html.toString());
+            }
+        }
+    }
+
+}
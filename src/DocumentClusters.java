@@ -0,0 +1,200 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+class DocumentClusters implements Serializable {
+
+    private static final int ITERATIONS = 10;
+    private static final int LEADER_TERMS = 200;
+
+    private int[][] leaderTerms;
+    private double[][] leaderWeights;
+    private int[][] members;
+
+    /**
+     * Creates a new DocumentClusters object grouping the document vectors around sqrt(N) leaders with 10 iterations
+     * of spherical k-means (the documents are assigned to the leaders in parallel). The centroids are sparse and
+     * keep only their 200 words with the highest weights, so they take O(sqrt(N)) memory instead of
+     * O(sqrt(N) * V), and the documents are compared with them through an inverted index of their words:
+     * <p>
+     * 1- LeaderTerms and LeaderWeights: the normalized centroid of each cluster, sorted by word id.
+     * 2- Members: the ids of the documents of each cluster, sorted lowest to highest.
+     *
+     * @param forwardIndex   the vectors of the documents (with all their words).
+     * @param dictionarySize the number of words of the dictionary.
+     * @param seed           the seed used to choose the initial leaders.
+     */
+    DocumentClusters(ForwardIndex forwardIndex, int dictionarySize, long seed) {
+
+        int documents = forwardIndex.size();
+        int clusters = Math.max(1, (int) Math.ceil(Math.sqrt(documents)));
+        int[] assignments = new int[documents];
+        double[] sum = new double[dictionarySize];
+        int[] touched = new int[dictionarySize];
+
+        leaderTerms = new int[clusters][];
+        leaderWeights = new double[clusters][];
+        members = new int[clusters][];
+
+        ArrayList<Integer> order = new ArrayList<>();
+        for (int document = 0; document < documents; ++document) {
+            order.add(document);
+        }
+        Collections.shuffle(order, new Random(seed));
+
+        for (int cluster = 0; cluster < clusters; ++cluster) {
+            members[cluster] = cluster < documents ? new int[]{order.get(cluster)} : new int[0];
+            setLeader(cluster, sum, touched, forwardIndex);
+        }
+
+        for (int iteration = 0; iteration <= ITERATIONS; ++iteration) {
+
+            CentroidIndex centroids = new CentroidIndex(leaderTerms, leaderWeights, dictionarySize);
+            ThreadLocal<double[]> scores = ThreadLocal.withInitial(() -> new double[clusters]);
+
+            IntStream.range(0, documents).parallel()
+                    .forEach(document -> assignments[document] = centroids.closest(forwardIndex, document, scores.get()));
+
+            int[] sizes = new int[clusters];
+            for (int assignment : assignments) {
+                ++sizes[assignment];
+            }
+
+            members = new int[clusters][];
+
+            for (int cluster = 0; cluster < clusters; ++cluster) {
+                members[cluster] = new int[sizes[cluster]];
+            }
+
+            Arrays.fill(sizes, 0);
+
+            for (int document = 0; document < documents; ++document) {
+                members[assignments[document]][sizes[assignments[document]]++] = document;
+            }
+
+            if (iteration == ITERATIONS) {
+                break; //The last assignment is not used to move the leaders
+            }
+
+            for (int cluster = 0; cluster < clusters; ++cluster) {
+                if (members[cluster].length > 0) {
+                    setLeader(cluster, sum, touched, forwardIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the leader of a cluster to the normalized sum of the normalized vectors of its members, keeping only
+     * its words with the highest weights. The dense buffer is left filled with zeros for the next cluster (the
+     * weights are never negative, so a word is in the sum once its value is not 0).
+     *
+     * @param cluster      the id of the cluster.
+     * @param sum          a buffer with a 0 for each word of the dictionary.
+     * @param touched      a buffer for the ids of the words of the sum.
+     * @param forwardIndex the vectors of the documents.
+     */
+    private void setLeader(int cluster, double[] sum, int[] touched, ForwardIndex forwardIndex) {
+
+        int length = 0;
+
+        for (int document : members[cluster]) {
+
+            double norm = forwardIndex.getNorm(document);
+            if (norm == 0.0) {
+                continue;
+            }
+
+            int[] terms = forwardIndex.getTerms(document);
+            double[] weights = forwardIndex.getWeights(document);
+
+            for (int i = 0; i < terms.length; ++i) {
+                if (weights[i] == 0.0) {
+                    continue;
+                }
+                if (sum[terms[i]] == 0.0) {
+                    touched[length++] = terms[i];
+                }
+                sum[terms[i]] += weights[i] / norm;
+            }
+        }
+
+        Integer[] top = new Integer[length];
+        for (int i = 0; i < length; ++i) {
+            top[i] = touched[i];
+        }
+        Arrays.sort(top, (a, b) -> Double.compare(sum[b], sum[a]));
+
+        int kept = Math.min(length, LEADER_TERMS);
+        int[] terms = new int[kept];
+        double norm = 0.0;
+
+        for (int i = 0; i < kept; ++i) {
+            terms[i] = top[i];
+            norm += sum[terms[i]] * sum[terms[i]];
+        }
+
+        Arrays.sort(terms);
+        double[] weights = new double[kept];
+        norm = Math.sqrt(norm);
+
+        for (int i = 0; i < kept; ++i) {
+            weights[i] = norm > 0.0 ? sum[terms[i]] / norm : 0.0;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            sum[touched[i]] = 0.0;
+        }
+
+        leaderTerms[cluster] = terms;
+        leaderWeights[cluster] = weights;
+    }
+
+    /**
+     * Sorts the clusters by the similarity of their leaders with a query vector.
+     *
+     * @param terms   the ids of the words of the query in the dictionary.
+     * @param weights the weights of the words of the query.
+     * @return the clusters sorted highest to lowest (by similarity with the query).
+     */
+    Integer[] rank(int[] terms, double[] weights) {
+
+        Integer[] order = new Integer[members.length];
+        double[] similarities = new double[members.length];
+
+        for (int cluster = 0; cluster < members.length; ++cluster) {
+
+            order[cluster] = cluster;
+
+            for (int i = 0; i < terms.length; ++i) {
+                int position = Arrays.binarySearch(leaderTerms[cluster], terms[i]);
+                if (position >= 0) {
+                    similarities[cluster] += weights[i] * leaderWeights[cluster][position];
+                }
+            }
+        }
+
+        Arrays.sort(order, (a, b) -> Double.compare(similarities[b], similarities[a]));
+
+        return order;
+    }
+
+    /**
+     * @param cluster the id of the cluster.
+     * @return The ids of the documents of the cluster.
+     */
+    int[] getMembers(int cluster) {
+        return members[cluster];
+    }
+
+    /**
+     * @return The number of clusters.
+     */
+    int size() {
+        return members.length;
+    }
+
+}
@@ -5,43 +5,48 @@ import java.io.Serializable;
 import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
 
 class DocumentInfo implements Serializable {
 
     private String title;
     private ArrayList<String> phrases;
-    private ArrayList<String> cleanPhrases;
-    private ArrayList<Pair<String, Double>> wordsFrequency;
+    private ArrayList<int[]> cleanPhrases;
+    private int[] terms, frequencies;
 
     /**
      * Creates a new DocumentInfo object with:
      * <p>
      * 1- Title: title of the document.
      * 2- Phrases: The sentences of the document separated by '.'.
-     * 3- CleanPhrases: The sentences of the document cleaned.
+     * 3- CleanPhrases: The sentences of the document cleaned, as the ids of their stem words in the
+     * TermVocabulary of the Index.
+     * 4- Terms and Frequencies: the ids of the words of the document and their frequencies, sorted highest to
+     * lowest by frequency.
      *
      * @param title        title of the document.
      * @param originalBody body of the document (without HTML tags).
+     * @param vocabulary   the TermVocabulary of the Index.
      */
-    DocumentInfo(String title, String originalBody) throws Exception {
+    DocumentInfo(String title, String originalBody, TermVocabulary vocabulary) throws Exception {
 
         this.title = title;
         phrases = new ArrayList<>();
         cleanPhrases = new ArrayList<>();
-        wordsFrequency = new ArrayList<>();
-        setPhrases(originalBody);
+        terms = new int[0];
+        frequencies = new int[0];
+        setPhrases(originalBody, vocabulary);
     }
 
     /**
      * Separates the body of the document into sentences separated by '.' and saves them in the phrases
      * ArrayList. Then cleans each phrase (remove special characters, stop words and stemming)
-     * and saves it into the cleanPhrases ArrayList.
+     * and saves the ids of its words into the cleanPhrases ArrayList.
      *
      * @param originalBody body of the document (without HTML tags).
+     * @param vocabulary   the TermVocabulary of the Index.
      */
-    private void setPhrases(String originalBody) throws Exception {
+    private void setPhrases(String originalBody, TermVocabulary vocabulary) throws Exception {
 
         String[] phrases = originalBody.split("\\.");
         this.phrases.add(title);
@@ -55,14 +60,16 @@ class DocumentInfo implements Serializable {
             phrase = util.cleanText(this.phrases.get(i));
             String[] words = util.removeStopWords(phrase);
             util.stemmer(words);
-            StringBuilder sb = new StringBuilder();
+            int[] ids = new int[words.length];
+            int size = 0;
 
             for (int j = 0; j < words.length; ++j) {
-                sb.append(words[j]);
-                sb.append(" ");
+                if (!words[j].isEmpty()) {
+                    ids[size++] = vocabulary.add(words[j]);
+                }
             }
 
-            cleanPhrases.add(sb.toString());
+            cleanPhrases.add(Arrays.copyOf(ids, size));
         }
     }
 
@@ -70,18 +77,19 @@ class DocumentInfo implements Serializable {
      * Searches the words of a query in the document and returns a String with the first phrase that contains
      * some of the words of the query or an empty String if there is no such sentence.
      *
-     * @param words the words to search in the document.
+     * @param words the ids of the words to search in the document (-1 for the words that are not in the
+     *              TermVocabulary).
      * @return a String with the first phrase that contains some of the words.
      */
-    String searchFullQuery(String[] words) {
+    String searchFullQuery(int[] words) {
 
         for (int i = 0; i < cleanPhrases.size(); ++i) {
-            String[] phraseWords = cleanPhrases.get(i).split("\\s+");
+            int[] phraseWords = cleanPhrases.get(i);
 
             for (int j = 0; j < words.length; ++j) {
 
                 for (int k = 0; k < phraseWords.length; ++k) {
-                    if (phraseWords[k].equals(words[j])) {
+                    if (phraseWords[k] == words[j]) {
 
                         return phrases.get(i);
                     }
@@ -93,59 +101,60 @@ class DocumentInfo implements Serializable {
     }
 
     /**
-     * Gets all the document's words and their frequencies into the wordsFrequency array and sort it
-     * highest to lowest using quicksort.
+     * Gets all the document's words and their frequencies into the terms and frequencies arrays, sorted
+     * highest to lowest by frequency (and lowest to highest by id when the frequency is the same).
      *
-     * @param words the document's words.
+     * @param words      the document's words.
+     * @param vocabulary the TermVocabulary of the Index.
      */
-    void setWordsFrequency(String[] words) {
+    void setWordsFrequency(String[] words, TermVocabulary vocabulary) {
 
-        HashMap<String, Double> wordsFrequency = new HashMap<>();
+        StringIntMap wordsFrequency = new StringIntMap(words.length);
 
         for (String word : words) {
+            wordsFrequency.add(word, 1);
+        }
+
+        long[] keys = new long[wordsFrequency.size()];
+        int size = 0;
 
-            if (wordsFrequency.get(word) == null) {
-                wordsFrequency.put(word, 0.0);
-            } else {
-                wordsFrequency.replace(word, wordsFrequency.get(word) + 1.0);
+        for (int slot = 0; slot < wordsFrequency.capacity(); ++slot) {
+            if (wordsFrequency.keyAt(slot) != null) {
+                int id = vocabulary.add(wordsFrequency.keyAt(slot));
+                keys[size++] = ((long) (Integer.MAX_VALUE - wordsFrequency.valueAt(slot)) << 32) | id;
             }
         }
 
-        for (Map.Entry<String, Double> entry : wordsFrequency.entrySet()) {
-            this.wordsFrequency.add(new Pair<>(entry.getKey(), entry.getValue()));
-        }
+        Arrays.sort(keys);
+        terms = new int[size];
+        frequencies = new int[size];
 
-        QuickSort quickSort = new QuickSort();
-        quickSort.sort(this.wordsFrequency);
+        for (int i = 0; i < size; ++i) {
+            terms[i] = (int) keys[i];
+            frequencies[i] = Integer.MAX_VALUE - (int) (keys[i] >>> 32);
+        }
     }
 
     /**
      * Gets a number of top words of the document.
      *
-     * @param number the number of top words to get from the document.
+     * @param number     the number of top words to get from the document.
+     * @param usedWords  the ids of the words already used, where the words returned are added.
+     * @param vocabulary the TermVocabulary of the Index.
+     * @return a String with the top words separated by spaces.
      */
-    String getTopWords(int number, ArrayList<String> usedWords) {
+    String getTopWords(int number, HashSet<Integer> usedWords, TermVocabulary vocabulary) {
 
         StringBuilder sb = new StringBuilder();
-        boolean used = false;
         int cont = 0;
 
-        for (int i = 0; i < wordsFrequency.size() && (cont < number); ++i) {
+        for (int i = 0; i < terms.length && (cont < number); ++i) {
 
-            for (int j = 0; j < usedWords.size(); ++j) {
-                if (usedWords.get(j).equals(wordsFrequency.get(i).getFirst())) {
-                    used = true;
-                }
-            }
-
-            if (!used) {
-                sb.append(wordsFrequency.get(i).getFirst());
+            if (usedWords.add(terms[i])) {
+                sb.append(vocabulary.get(terms[i]));
                 sb.append(" ");
-                usedWords.add(wordsFrequency.get(i).getFirst());
                 ++cont;
             }
-
-            used = false;
         }
 
         return sb.toString();
@@ -158,4 +167,32 @@ class DocumentInfo implements Serializable {
         return title;
     }
 
-}
\ No newline at end of file
+    /**
+     * @return The sentences of the document.
+     */
+    ArrayList<String> getPhrases() {
+        return phrases;
+    }
+
+    /**
+     * @return The sentences of the document cleaned, as the ids of their words.
+     */
+    ArrayList<int[]> getCleanPhrases() {
+        return cleanPhrases;
+    }
+
+    /**
+     * @return The ids of the words of the document sorted highest to lowest by frequency.
+     */
+    int[] getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return The frequency of each word of getTerms().
+     */
+    int[] getFrequencies() {
+        return frequencies;
+    }
+
+}
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class DocumentOrdering {
+
+    private static final int HASHES = 4;
+
+    private ArrayList<String> names;
+    private long[][] signatures;
+
+    /**
+     * Creates a new DocumentOrdering object with a MinHash signature of the words of each document, used to
+     * give nearby ids to the documents that share words:
+     * <p>
+     * 1- Names: the documents in their current order.
+     * 2- Signatures: for each document, the minimum of 4 hash functions over its words. Two documents share
+     * each value with a probability equal to the Jaccard similarity of their words.
+     *
+     * @param words the words of the Index with the documents that contain them (before the weights).
+     * @param names the documents in their current order.
+     */
+    DocumentOrdering(HashMap<String, Pair<Double, StringDoubleMap>> words, ArrayList<String> names) {
+
+        HashMap<String, Integer> ids = ids(names);
+        this.names = names;
+        signatures = new long[names.size()][HASHES];
+
+        for (long[] signature : signatures) {
+            Arrays.fill(signature, Long.MAX_VALUE);
+        }
+
+        for (Map.Entry<String, Pair<Double, StringDoubleMap>> entry : words.entrySet()) {
+
+            long[] hashes = new long[HASHES];
+            for (int i = 0; i < HASHES; ++i) {
+                hashes[i] = mix(entry.getKey().hashCode() * 0x9E3779B97F4A7C15L + i);
+            }
+
+            StringDoubleMap documents = entry.getValue().getSecond();
+
+            for (int slot = 0; slot < documents.capacity(); ++slot) {
+                Integer document = documents.keyAt(slot) == null ? null : ids.get(documents.keyAt(slot));
+                if (document != null) {
+                    for (int i = 0; i < HASHES; ++i) {
+                        signatures[document][i] = Math.min(signatures[document][i], hashes[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the documents by their signatures (MinHash sort): the documents with the same least hashed word
+     * are contiguous, and inside them the ones that share the next values too. Documents with equal signatures
+     * keep their current order.
+     *
+     * @return the documents in their new order, where the position of each one is its new id.
+     */
+    ArrayList<String> sort() {
+
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (a, b) -> {
+            for (int i = 0; i < HASHES; ++i) {
+                int compare = Long.compare(signatures[a][i], signatures[b][i]);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return 0;
+        });
+
+        ArrayList<String> sorted = new ArrayList<>();
+        for (int document : order) {
+            sorted.add(names.get(document));
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Calculates the bits per posting of the words of the Index if their document ids were stored as gaps
+     * coded with Elias gamma, for a given order of the documents.
+     *
+     * @param words the words of the Index with the documents that contain them (before the weights).
+     * @param names the documents, where the position of each one is its id.
+     * @return the average bits per posting.
+     */
+    static double gapBits(HashMap<String, Pair<Double, StringDoubleMap>> words, ArrayList<String> names) {
+
+        HashMap<String, Integer> ids = ids(names);
+        long bits = 0, postings = 0;
+
+        for (Pair<Double, StringDoubleMap> pair : words.values()) {
+
+            StringDoubleMap documents = pair.getSecond();
+            int[] list = new int[documents.size()];
+            int size = 0;
+
+            for (int slot = 0; slot < documents.capacity(); ++slot) {
+                Integer document = documents.keyAt(slot) == null ? null : ids.get(documents.keyAt(slot));
+                if (document != null) {
+                    list[size++] = document;
+                }
+            }
+
+            Arrays.sort(list, 0, size);
+            bits += gammaBits(Arrays.copyOf(list, size));
+            postings += size;
+        }
+
+        return postings == 0 ? 0.0 : (double) bits / postings;
+    }
+
+    /**
+     * @param documents the ids of some documents sorted lowest to highest.
+     * @return The bits of the gaps between the ids coded with Elias gamma (the first gap is the first id + 1).
+     */
+    static long gammaBits(int[] documents) {
+
+        long bits = 0;
+        int previous = -1;
+
+        for (int document : documents) {
+            int gap = document - previous;
+            bits += 2 * (31 - Integer.numberOfLeadingZeros(gap)) + 1;
+            previous = document;
+        }
+
+        return bits;
+    }
+
+    /**
+     * @return The position of each document.
+     */
+    private static HashMap<String, Integer> ids(ArrayList<String> names) {
+
+        HashMap<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.size(); ++i) {
+            ids.put(names.get(i), i);
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return The value scrambled with the finalizer of MurmurHash3.
+     */
+    private static long mix(long value) {
+
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe1a85b53L;
+        value ^= value >>> 33;
+
+        return value;
+    }
+
+}
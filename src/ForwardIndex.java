@@ -0,0 +1,128 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+class ForwardIndex implements Serializable {
+
+    private int[][] terms;
+    private double[][] weights;
+    private double[] norms;
+
+    /**
+     * Creates a new ForwardIndex object with the vector of each document, built from the Postings of the words:
+     * <p>
+     * 1- Terms: for each document id, the ids of its words in the dictionary, sorted by weight (highest to lowest).
+     * 2- Weights: the weight of each of those words in the document.
+     * 3- Norms: the norm of the full vector of each document (before keeping only its top words).
+     *
+     * @param dictionary the sorted words of the collection.
+     * @param postings   the Postings of each word of the Index.
+     * @param documents  the number of documents of the Index.
+     * @param maxTerms   the maximum number of words kept for each document (0: all of them).
+     */
+    ForwardIndex(TermDictionary dictionary, HashMap<String, Postings> postings, int documents, int maxTerms) {
+
+        int[] lengths = new int[documents];
+
+        for (Postings list : postings.values()) {
+            for (int document : list.getDocuments()) {
+                ++lengths[document];
+            }
+        }
+
+        terms = new int[documents][];
+        weights = new double[documents][];
+        norms = new double[documents];
+
+        for (int document = 0; document < documents; ++document) {
+            terms[document] = new int[lengths[document]];
+            weights[document] = new double[lengths[document]];
+        }
+
+        Arrays.fill(lengths, 0);
+
+        for (int term = 0; term < dictionary.size(); ++term) {
+
+            Postings list = postings.get(dictionary.get(term));
+            if (list == null) {
+                continue;
+            }
+
+            for (int i = 0; i < list.size(); ++i) {
+                int document = list.getDocuments()[i];
+                terms[document][lengths[document]] = term;
+                weights[document][lengths[document]] = list.getWeights()[i];
+                ++lengths[document];
+                norms[document] += list.getWeights()[i] * list.getWeights()[i];
+            }
+        }
+
+        for (int document = 0; document < documents; ++document) {
+            norms[document] = Math.sqrt(norms[document]);
+            sortByWeight(document, maxTerms);
+        }
+    }
+
+    /**
+     * Sorts the words of a document by weight (highest to lowest) and keeps only the top ones.
+     *
+     * @param document the id of the document.
+     * @param maxTerms the maximum number of words kept (0: all of them).
+     */
+    private void sortByWeight(int document, int maxTerms) {
+
+        int length = terms[document].length;
+        Integer[] order = new Integer[length];
+
+        for (int i = 0; i < length; ++i) {
+            order[i] = i;
+        }
+
+        double[] values = weights[document];
+        Arrays.sort(order, (a, b) -> Double.compare(values[b], values[a]));
+
+        int kept = maxTerms > 0 ? Math.min(maxTerms, length) : length;
+        int[] sortedTerms = new int[kept];
+        double[] sortedWeights = new double[kept];
+
+        for (int i = 0; i < kept; ++i) {
+            sortedTerms[i] = terms[document][order[i]];
+            sortedWeights[i] = values[order[i]];
+        }
+
+        terms[document] = sortedTerms;
+        weights[document] = sortedWeights;
+    }
+
+    /**
+     * @return The number of documents of the ForwardIndex.
+     */
+    int size() {
+        return terms.length;
+    }
+
+    /**
+     * @param document the id of the document.
+     * @return The ids of the words of the document, sorted by weight (highest to lowest).
+     */
+    int[] getTerms(int document) {
+        return terms[document];
+    }
+
+    /**
+     * @param document the id of the document.
+     * @return The weights of the words of the document, in the same order as its terms.
+     */
+    double[] getWeights(int document) {
+        return weights[document];
+    }
+
+    /**
+     * @param document the id of the document.
+     * @return The norm of the full vector of the document.
+     */
+    double getNorm(int document) {
+        return norms[document];
+    }
+
+}
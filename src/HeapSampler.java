@@ -0,0 +1,65 @@
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class HeapSampler implements Closeable {
+
+    private MemoryMXBean memory;
+    private AtomicLong peak;
+    private ScheduledExecutorService sampler;
+
+    /**
+     * Creates a new HeapSampler object that starts sampling the used heap in the background, so the peak is
+     * the highest heap actually used at one moment (the peaks of the memory pools are reached at different
+     * moments and their sum overstates it):
+     * <p>
+     * 1- Memory: the MemoryMXBean of the JVM.
+     * 2- Peak: the highest used heap sampled so far, in bytes.
+     * 3- Sampler: the thread that samples the used heap.
+     *
+     * @param milliseconds the milliseconds between samples.
+     */
+    HeapSampler(int milliseconds) {
+
+        memory = ManagementFactory.getMemoryMXBean();
+        peak = new AtomicLong();
+
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        sampler.scheduleAtFixedRate(this::sample, 0, milliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Samples the used heap and keeps it if it is the highest so far.
+     */
+    private void sample() {
+        peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    /**
+     * @return The highest used heap sampled so far in bytes (a spike shorter than the interval between samples
+     * may be missed).
+     */
+    long getPeak() {
+
+        sample();
+        return peak.get();
+    }
+
+    /**
+     * Stops sampling the used heap.
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,265 @@
+import org.jsoup.parser.Parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class HtmlDocument {
+
+    private static final Set<String> BLOCK_TAGS = new HashSet<>(Arrays.asList(
+            "address", "article", "aside", "blockquote", "body", "br", "dd", "div", "dl", "dt", "fieldset",
+            "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hr",
+            "html", "li", "main", "nav", "ol", "p", "pre", "section", "table", "tbody", "td", "tfoot", "th",
+            "thead", "title", "tr", "ul"));
+    private static final Pattern META_CHARSET = Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?([\\w-]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private String title;
+    private String paragraphs;
+    private String text;
+
+    /**
+     * Creates a new HtmlDocument object with:
+     * <p>
+     * 1- Title: the text of the first 'title' element.
+     * 2- Paragraphs: the text of every 'p' element, separated by spaces.
+     * 3- Text: the whole text of the document without HTML tags, scripts and styles.
+     */
+    private HtmlDocument(String title, String paragraphs, String text) {
+
+        this.title = title;
+        this.paragraphs = paragraphs;
+        this.text = text;
+    }
+
+    /**
+     * Extracts the title, the paragraphs and the text of a HTML document in a single pass over its content,
+     * reading the tags as a stream instead of building the tree of the document.
+     * <p>
+     * The content is decoded with the charset declared in a 'meta' element of the document or, if there is none,
+     * with the given charset.
+     *
+     * @param content the content of the document.
+     * @param charset the charset used if the document does not declare one.
+     * @return a HtmlDocument object with the text of the document.
+     */
+    static HtmlDocument parse(ByteBuffer content, Charset charset) {
+
+        String html = decode(content, charset);
+        StringBuilder title = new StringBuilder();
+        StringBuilder paragraphs = new StringBuilder();
+        StringBuilder paragraph = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+        boolean inTitle = false, titleDone = false, inParagraph = false;
+        int length = html.length();
+        int i = 0;
+
+        while (i < length) {
+
+            int open = html.indexOf('<', i);
+            int end = open == -1 ? length : open;
+
+            if (end > i) {
+                String run = Parser.unescapeEntities(html.substring(i, end), false);
+                text.append(run);
+
+                if (inTitle) {
+                    title.append(run);
+                }
+                if (inParagraph) {
+                    paragraph.append(run);
+                }
+            }
+
+            if (open == -1) {
+                break;
+            }
+
+            if (html.startsWith("<!--", open)) {
+                int close = html.indexOf("-->", open + 4);
+                i = close == -1 ? length : close + 3;
+                continue;
+            }
+
+            int close = tagEnd(html, open + 1);
+            boolean closing = open + 1 < length && html.charAt(open + 1) == '/';
+            String name = tagName(html, closing ? open + 2 : open + 1);
+            i = close;
+
+            if (name.isEmpty()) {
+                if (open + 1 < length && (html.charAt(open + 1) == '!' || html.charAt(open + 1) == '?')) {
+                    continue;
+                }
+                text.append('<'); //Not a tag
+                i = open + 1;
+                continue;
+            }
+
+            if (!closing && (name.equals("script") || name.equals("style"))) {
+                int rawEnd = indexOfIgnoreCase(html, "</" + name, close);
+                i = rawEnd == -1 ? length : tagEnd(html, rawEnd + 2);
+                continue;
+            }
+
+            if (BLOCK_TAGS.contains(name)) {
+                text.append(' ');
+
+                if (inParagraph && (closing || !name.equals("br"))) {
+                    paragraphs.append(normalize(paragraph)).append(' ');
+                    paragraph.setLength(0);
+                    inParagraph = false;
+                } else if (inParagraph) {
+                    paragraph.append(' ');
+                }
+            }
+
+            if (name.equals("p") && !closing) {
+                inParagraph = true;
+            } else if (name.equals("title") && !titleDone) {
+                inTitle = !closing;
+                titleDone = closing;
+            }
+        }
+
+        if (inParagraph) {
+            paragraphs.append(normalize(paragraph)).append(' ');
+        }
+
+        return new HtmlDocument(normalize(title), paragraphs.toString(), normalize(text));
+    }
+
+    /**
+     * Decodes the document with the charset declared in its first bytes or with the given charset.
+     *
+     * @param content the content of the document.
+     * @param charset the charset used if the document does not declare one.
+     * @return the content of the document as a String.
+     */
+    private static String decode(ByteBuffer content, Charset charset) {
+
+        ByteBuffer bytes = content.duplicate();
+        bytes.limit(Math.min(bytes.limit(), bytes.position() + 1024));
+        String head = StandardCharsets.ISO_8859_1.decode(bytes).toString();
+        Matcher matcher = META_CHARSET.matcher(head);
+
+        if (matcher.find()) {
+            try {
+                charset = Charset.forName(matcher.group(1));
+            } catch (IllegalArgumentException e) {
+                //Unknown charset, the given one is used
+            }
+        }
+
+        return charset.decode(content.duplicate()).toString();
+    }
+
+    /**
+     * @return The position after the '>' that closes the tag, skipping the quoted values of its attributes.
+     */
+    private static int tagEnd(String html, int from) {
+
+        char quote = 0;
+
+        for (int i = from; i < html.length(); ++i) {
+            char character = html.charAt(i);
+
+            if (quote != 0) {
+                if (character == quote) {
+                    quote = 0;
+                }
+            } else if (character == '"' || character == '\'') {
+                quote = character;
+            } else if (character == '>') {
+                return i + 1;
+            }
+        }
+
+        return html.length();
+    }
+
+    /**
+     * @return The position of the first occurrence of the target ignoring case or -1 if there is none.
+     */
+    private static int indexOfIgnoreCase(String html, String target, int from) {
+
+        for (int i = html.indexOf('<', from); i != -1; i = html.indexOf('<', i + 1)) {
+            if (html.regionMatches(true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return The name of the tag in lower case or an empty String if there is no tag in that position.
+     */
+    private static String tagName(String html, int from) {
+
+        int i = from;
+
+        while (i < html.length() && Character.isLetterOrDigit(html.charAt(i))) {
+            ++i;
+        }
+
+        if (i == from || !Character.isLetter(html.charAt(from))) {
+            return "";
+        }
+
+        return html.substring(from, i).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The text with every sequence of white spaces replaced by a single space and without leading
+     * and trailing spaces.
+     */
+    private static String normalize(CharSequence text) {
+
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+
+        for (int i = 0; i < text.length(); ++i) {
+            char character = text.charAt(i);
+
+            if (Character.isWhitespace(character) || character == '\u00a0') {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(character);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return The title of the document.
+     */
+    String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return The text of the 'p' elements of the document, separated by spaces.
+     */
+    String getParagraphs() {
+        return paragraphs;
+    }
+
+    /**
+     * @return The whole text of the document without HTML tags.
+     */
+    String getText() {
+        return text;
+    }
+
+}
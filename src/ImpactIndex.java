@@ -0,0 +1,95 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class ImpactIndex implements Serializable {
+
+    static final int LEVELS = 255;
+
+    private HashMap<String, ImpactPostings> postings;
+    private double maxWeight;
+
+    /**
+     * Creates a new ImpactIndex object quantizing the weights of the Index to 8 bits impacts:
+     * <p>
+     * 1- Postings: for each word, the documents that contain it sorted by impact (highest to lowest).
+     * 2- MaxWeight: the maximum weight of the Index, that is mapped to the highest impact.
+     * <p>
+     * The postings with a weight of 0 are not stored, because they never change the score of a document.
+     *
+     * @param words the Postings of each word of the Index.
+     */
+    ImpactIndex(HashMap<String, Postings> words) {
+
+        postings = new HashMap<>();
+        maxWeight = 0.0;
+
+        for (Postings list : words.values()) {
+            for (double weight : list.getWeights()) {
+                maxWeight = Math.max(maxWeight, weight);
+            }
+        }
+
+        for (Map.Entry<String, Postings> entry : words.entrySet()) {
+
+            int[] ids = entry.getValue().getDocuments();
+            double[] weights = entry.getValue().getWeights();
+            long[] keys = new long[ids.length];
+            int size = 0;
+
+            for (int i = 0; i < ids.length; ++i) {
+                int impact = quantize(weights[i], maxWeight);
+
+                if (impact > 0) {
+                    keys[size++] = ((long) (LEVELS - impact) << 32) | ids[i]; //Highest impact first
+                }
+            }
+
+            if (size > 0) {
+                Arrays.sort(keys, 0, size);
+                int[] documents = new int[size];
+                byte[] impacts = new byte[size];
+
+                for (int i = 0; i < size; ++i) {
+                    documents[i] = (int) keys[i];
+                    impacts[i] = (byte) (LEVELS - (int) (keys[i] >>> 32));
+                }
+
+                postings.put(entry.getKey(), new ImpactPostings(documents, impacts));
+            }
+        }
+    }
+
+    /**
+     * Quantizes a weight to an impact between 0 and 255. Any weight greater than 0 gets at least an impact of 1.
+     *
+     * @param weight the weight to quantize.
+     * @param max    the weight that is mapped to the highest impact.
+     * @return the impact of the weight.
+     */
+    static int quantize(double weight, double max) {
+
+        if (weight <= 0.0 || max <= 0.0) {
+            return 0;
+        }
+
+        return Math.max(1, Math.min(LEVELS, (int) Math.round(weight / max * LEVELS)));
+    }
+
+    /**
+     * @param word the word to search.
+     * @return The postings of the word sorted by impact or null if the word is not in the Index.
+     */
+    ImpactPostings get(String word) {
+        return postings.get(word);
+    }
+
+    /**
+     * @return The maximum weight of the Index, that is mapped to the highest impact.
+     */
+    double getMaxWeight() {
+        return maxWeight;
+    }
+
+}
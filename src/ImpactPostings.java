@@ -0,0 +1,47 @@
+import java.io.Serializable;
+
+class ImpactPostings implements Serializable {
+
+    private int[] documents;
+    private byte[] impacts;
+
+    /**
+     * Creates a new ImpactPostings object with the documents that contain a word sorted by their impact
+     * (highest to lowest), so the documents with the same impact are stored together:
+     * <p>
+     * 1- Documents: the ids of the documents.
+     * 2- Impacts: the weight of the word in each document quantized to 8 bits (1 to 255).
+     *
+     * @param documents the ids of the documents.
+     * @param impacts   the quantized weights of the word in the documents.
+     */
+    ImpactPostings(int[] documents, byte[] impacts) {
+
+        this.documents = documents;
+        this.impacts = impacts;
+    }
+
+    /**
+     * @return The number of documents that contain the word.
+     */
+    int size() {
+        return documents.length;
+    }
+
+    /**
+     * @param i the position in the postings.
+     * @return The id of the document in that position.
+     */
+    int getDocument(int i) {
+        return documents[i];
+    }
+
+    /**
+     * @param i the position in the postings.
+     * @return The impact (1 to 255) of the word in the document in that position.
+     */
+    int getImpact(int i) {
+        return impacts[i] & 0xFF;
+    }
+
+}
@@ -1,24 +1,62 @@
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
 class Index implements Serializable {
 
-    private HashMap<String, Pair<Double, HashMap<String, Double>>> words;
+    private HashMap<String, Pair<Double, StringDoubleMap>> words;
+    private HashMap<String, Postings> postings;
     private HashMap<String, DocumentInfo> documents;
+    private TermVocabulary vocabulary;
     private HashMap<String, Integer> frequencies;
+    private TermDictionary dictionary;
+    private ArrayList<String> documentNames;
+    private HashMap<String, Integer> documentIds;
+    private ImpactIndex impactIndex;
+    private HashMap<String, Postings> champions;
+    private DocumentClusters clusters;
+    private ForwardIndex forwardIndex;
+    private KGramIndex spelling;
+    private CompletionTrie completions;
+    private HashMap<String, StringDoubleMap> titleWords;
+    private HashMap<String, Postings> titlePostings;
+    private long totalWords;
+    private HashMap<String, ArrayList<String>> duplicates;
 
     /**
      * Creates a new Index object with:
      * <p>
      * 1- Words: all the stem words of the documents's collection.
+     * 1b- Postings: the documents and weights of each word in primitive arrays (built with the weights).
      * 2- Documents: the information of the documents's collection.
+     * 2b- Vocabulary: the id of each stem word of the documents, shared by their DocumentInfo.
      * 3- Frequiencies: the maximun frequency of a word for each document.
+     * 4- Dictionary: the sorted words of the collection (built when the weights are calculated).
+     * 5- DocumentNames and DocumentIds: the id of each document, in the order they were added.
+     * 6- ImpactIndex: the quantized weights of the words (only if it is built).
+     * 7- TotalWords: the number of words of all the documents.
+     * 8- Duplicates: the near duplicates collapsed into each original document.
+     * 9- Champions: the high tier of each word, its documents with the highest weights (only if it is built).
+     * 10- Clusters: the documents grouped around sqrt(N) leaders (only if it is built).
+     * 11- ForwardIndex: the top weighted words of each document (only if it is built).
+     * 12- Spelling: the k-gram index of the dictionary for the spelling suggestions (only if it is built).
+     * 13- Completions: the trie of the words of the titles and texts for the autocomplete (only if it is built).
+     * 14- TitleWords: the stem words of the titles, with the documents that contain them and their frequency
+     * divided by the maximum frequency of the title (until the weights are calculated).
+     * 15- TitlePostings: the documents and weights of each word of the titles (built with the weights).
      */
     Index() {
 
         words = new HashMap<>();
+        postings = new HashMap<>();
         frequencies = new HashMap<>();
         documents = new HashMap<>();
+        vocabulary = new TermVocabulary();
+        documentNames = new ArrayList<>();
+        documentIds = new HashMap<>();
+        duplicates = new HashMap<>();
+        titleWords = new HashMap<>();
+        titlePostings = new HashMap<>();
     }
 
     /**
@@ -28,29 +66,23 @@ class Index implements Serializable {
      * The HashMap contains all the different words in the collection and for each word there is a Pair with:
      * <p>
      * First: the idf value of that word.
-     * Second: a HashMap with the documents that contains that word and the wn value for the word in that document
-     * (before calculating the weights, it contains the word frequency in that document).
+     * Second: a StringDoubleMap with the documents that contains that word and the frequency of the word in that
+     * document, incremented in place. Once the weights are calculated, the documents are moved to the Postings of the word and
+     * Second becomes null.
      *
      * @param word     the word that will be loaded in the index.
      * @param document the document that contains the word.
      */
     void add(String word, String document) {
 
-        if (words.get(word) == null) {
-            HashMap<String, Double> ocurrences;
-            ocurrences = new HashMap<>();
-            ocurrences.put(document, 1.0);
-            Pair<Double, HashMap<String, Double>> pair = new Pair<>(null, ocurrences);
-            words.put(word, pair);
-
-        } else {
-            if (words.get(word).getSecond().get(document) == null) {
-                words.get(word).getSecond().put(document, 1.0);
+        Pair<Double, StringDoubleMap> pair = words.get(word);
 
-            } else {
-                words.get(word).getSecond().replace(document, words.get(word).getSecond().get(document) + 1);
-            }
+        if (pair == null) {
+            pair = new Pair<>(null, new StringDoubleMap());
+            words.put(word, pair);
         }
+
+        pair.getSecond().add(document, 1.0);
     }
 
     /**
@@ -61,26 +93,88 @@ class Index implements Serializable {
      */
     void setFrequency(String name, String[] words) {
 
-        HashMap<String, Integer> wordFreq = new HashMap<>();
+        StringIntMap wordFreq = new StringIntMap(words.length);
+        int freq = -1;
 
         for (int i = 0; i < words.length; ++i) {
-            if (wordFreq.get(words[i]) == null) {
-                wordFreq.put(words[i], 1);
+            freq = Math.max(freq, wordFreq.add(words[i], 1));
+        }
+
+        frequencies.put(name, freq);
+        totalWords += words.length;
+    }
+
+    /**
+     * Adds the stem words of the title of a document to the title field of the Index.
+     *
+     * @param document the name of the document.
+     * @param words    the stem words of the title.
+     */
+    void addTitleWords(String document, String[] words) {
 
-            } else {
-                wordFreq.replace(words[i], wordFreq.get(words[i]) + 1);
+        StringIntMap wordFreq = new StringIntMap(words.length);
+        int freq = 0;
+
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                freq = Math.max(freq, wordFreq.add(word, 1));
             }
         }
 
-        int freq = -1;
-
-        for (Map.Entry<String, Integer> entry : wordFreq.entrySet()) {
-            if (entry.getValue() > freq) {
-                freq = entry.getValue();
+        for (int slot = 0; slot < wordFreq.capacity(); ++slot) {
+            if (wordFreq.keyAt(slot) != null) {
+                titleWords.computeIfAbsent(wordFreq.keyAt(slot), k -> new StringDoubleMap())
+                        .put(document, (double) wordFreq.valueAt(slot) / freq);
             }
         }
+    }
 
-        frequencies.put(name, freq);
+    /**
+     * Copies an Index before calculating the weights so the copy can be finished and saved while this one keeps
+     * adding and removing documents. Only what calculating the weights and building the optional structures
+     * change is copied (the frequencies of the words and the titles and the ids of the documents); the
+     * information of the documents, the vocabulary and the duplicates are shared, so the copy must be saved
+     * before this Index changes again.
+     *
+     * @return a copy of the Index that can be finished.
+     */
+    Index snapshot() {
+
+        Index copy = new Index();
+
+        for (Map.Entry<String, Pair<Double, StringDoubleMap>> entry : words.entrySet()) {
+            copy.words.put(entry.getKey(), new Pair<>(null, entry.getValue().getSecond().copy()));
+        }
+
+        for (Map.Entry<String, StringDoubleMap> entry : titleWords.entrySet()) {
+            copy.titleWords.put(entry.getKey(), entry.getValue().copy());
+        }
+
+        copy.documents = documents;
+        copy.vocabulary = vocabulary;
+        copy.frequencies = frequencies;
+        copy.duplicates = duplicates;
+        copy.documentNames.addAll(documentNames);
+        copy.documentIds.putAll(documentIds);
+        copy.totalWords = totalWords;
+
+        return copy;
+    }
+
+    /**
+     * Reassigns the ids of the documents so the documents that share words get nearby ids (MinHash sort). The
+     * gaps between the ids of each word become smaller, so they compress better and the postings are traversed
+     * with more locality. It must be called before calculating the weights, which assign the new ids.
+     *
+     * @return an array with the bits per posting of the gaps coded with Elias gamma before and after reordering.
+     */
+    double[] reorderDocuments() {
+
+        documentNames.removeIf(name -> !documents.containsKey(name));
+        double before = DocumentOrdering.gapBits(words, documentNames);
+        documentNames = new DocumentOrdering(words, documentNames).sort();
+
+        return new double[]{before, DocumentOrdering.gapBits(words, documentNames)};
     }
 
     /**
@@ -89,34 +183,102 @@ class Index implements Serializable {
      * Calculating for each word:
      * 1- The IDF value for that word.
      * 2- The WN value for that word in each document that contains that word.
+     * <p>
+     * The weights of each word are then stored in its Postings, sorted by document id, and the HashMap of
+     * documents of the word is released. Finally, builds the sorted dictionary of words used to expand prefix, wildcard and fuzzy query terms.
+     * <p>
+     * The words of the titles are weighted the same way, with the idf of the title field, in the TitlePostings.
      */
     void calculateWeights() {
 
         words.remove("");
+        dictionary = new TermDictionary(words.keySet());
+        documentNames.removeIf(name -> !documents.containsKey(name));
+        documentIds.clear();
+
+        for (int i = 0; i < documentNames.size(); ++i) {
+            documentIds.put(documentNames.get(i), i);
+        }
 
-        for (Map.Entry<String, Pair<Double, HashMap<String, Double>>> entry : words.entrySet()) {
+        for (Map.Entry<String, Pair<Double, StringDoubleMap>> entry : words.entrySet()) {
+            StringDoubleMap ocurrences = entry.getValue().getSecond();
             double sum = 0;
-            double log = Math.log10((double) frequencies.size() / entry.getValue().getSecond().size());
-            words.get(entry.getKey()).setFirst(log);
-
-            for (Map.Entry<String, Double> entry2 : words.get(entry.getKey()).getSecond().entrySet()) {
-                int maxFrequency = frequencies.get(entry2.getKey());
-                words.get(entry.getKey()).getSecond().replace(entry2.getKey(), entry2.getValue() / maxFrequency); //Weight normalization
-                double wij = log * words.get(entry.getKey()).getSecond().get(entry2.getKey());
-                words.get(entry.getKey()).getSecond().replace(entry2.getKey(), wij);
+            double log = Math.log10((double) frequencies.size() / ocurrences.size());
+            entry.getValue().setFirst(log);
+
+            for (int slot = 0; slot < ocurrences.capacity(); ++slot) {
+                if (ocurrences.keyAt(slot) != null) {
+                    int maxFrequency = frequencies.get(ocurrences.keyAt(slot));
+                    double wij = log * (ocurrences.valueAt(slot) / maxFrequency); //Weight normalization
+                    ocurrences.setValueAt(slot, wij);
+                    sum += (wij * wij);
+                }
+            }
+
+            sum = Math.sqrt(sum);
+
+            for (int slot = 0; slot < ocurrences.capacity(); ++slot) {
+                ocurrences.setValueAt(slot, sum == 0.0 ? 0.0 : ocurrences.valueAt(slot) / sum);
+            }
+
+            postings.put(entry.getKey(), toPostings(ocurrences));
+            entry.getValue().setSecond(null);
+        }
+
+        for (Map.Entry<String, StringDoubleMap> entry : titleWords.entrySet()) {
+            StringDoubleMap ocurrences = entry.getValue();
+            double sum = 0;
+            double log = Math.log10((double) documentNames.size() / ocurrences.size());
+
+            for (int slot = 0; slot < ocurrences.capacity(); ++slot) {
+                double wij = log * ocurrences.valueAt(slot);
+                ocurrences.setValueAt(slot, wij);
                 sum += (wij * wij);
             }
 
             sum = Math.sqrt(sum);
 
-            for (Map.Entry<String, Double> entry2 : words.get(entry.getKey()).getSecond().entrySet()) {
-                if (sum == 0.0) {
-                    words.get(entry.getKey()).getSecond().replace(entry2.getKey(), 0.0);
-                } else {
-                    words.get(entry.getKey()).getSecond().replace(entry2.getKey(), entry2.getValue() / sum);
-                }
+            for (int slot = 0; slot < ocurrences.capacity(); ++slot) {
+                ocurrences.setValueAt(slot, sum == 0.0 ? 0.0 : ocurrences.valueAt(slot) / sum);
             }
+
+            titlePostings.put(entry.getKey(), toPostings(entry.getValue()));
         }
+
+        titleWords = null;
+    }
+
+    /**
+     * Converts the documents of a word and their weights to Postings sorted by document id.
+     *
+     * @param weights a StringDoubleMap with the documents that contains the word and the weight of the word.
+     * @return the Postings of the word.
+     */
+    private Postings toPostings(StringDoubleMap weights) {
+
+        long[] keys = new long[weights.size()];
+        double[] values = new double[weights.size()];
+        int size = 0;
+
+        for (int slot = 0; slot < weights.capacity(); ++slot) {
+            Integer document = weights.keyAt(slot) == null ? null : documentIds.get(weights.keyAt(slot));
+            if (document != null) {
+                keys[size] = ((long) document << 32) | size;
+                values[size] = weights.valueAt(slot);
+                ++size;
+            }
+        }
+
+        Arrays.sort(keys, 0, size);
+        int[] documents = new int[size];
+        double[] sorted = new double[size];
+
+        for (int i = 0; i < size; ++i) {
+            documents[i] = (int) (keys[i] >>> 32);
+            sorted[i] = values[(int) keys[i]];
+        }
+
+        return new Postings(documents, sorted);
     }
 
     /**
@@ -131,7 +293,187 @@ class Index implements Serializable {
      * @param documentInfo object with all the information about the document.
      */
     void addDocument(String document, DocumentInfo documentInfo) {
-        documents.put(document, documentInfo);
+
+        if (documents.put(document, documentInfo) == null) {
+            documentIds.put(document, documentNames.size());
+            documentNames.add(document);
+        }
+    }
+
+    /**
+     * Removes a document that is a near duplicate of another one from the documents of the Index. Its words
+     * must not have been added to the Index.
+     *
+     * @param document the name of the document.
+     * @param original the name of the original document to list the duplicate with, or null to drop it.
+     */
+    void removeDocument(String document, String original) {
+
+        documents.remove(document);
+
+        if (original != null) {
+            duplicates.computeIfAbsent(original, name -> new ArrayList<>()).add(document);
+        }
+    }
+
+    /**
+     * Removes a document whose words were already added to the Index, so it can be deleted or indexed again
+     * with a new version. It must be called before calculating the weights: the words of the document are
+     * found with the ids of its DocumentInfo and the words that are left without documents are removed.
+     *
+     * @param document   the name of the document.
+     * @param titleWords the stem words of the title of the document.
+     * @return true if the document was in the Index.
+     */
+    boolean deleteDocument(String document, String[] titleWords) {
+
+        DocumentInfo documentInfo = documents.remove(document);
+
+        if (documentInfo == null) {
+            return false;
+        }
+
+        int[] terms = documentInfo.getTerms();
+        int[] termFrequencies = documentInfo.getFrequencies();
+
+        for (int i = 0; i < terms.length; ++i) {
+            String word = vocabulary.get(terms[i]);
+            Pair<Double, StringDoubleMap> pair = words.get(word);
+
+            if (pair != null && pair.getSecond().remove(document) && pair.getSecond().size() == 0) {
+                words.remove(word);
+            }
+
+            totalWords -= termFrequencies[i];
+        }
+
+        for (String word : titleWords) {
+            StringDoubleMap titleDocuments = this.titleWords.get(word);
+
+            if (titleDocuments != null && titleDocuments.remove(document) && titleDocuments.size() == 0) {
+                this.titleWords.remove(word);
+            }
+        }
+
+        frequencies.remove(document);
+        documentNames.remove(document);
+        documentIds.remove(document);
+        duplicates.remove(document);
+
+        return true;
+    }
+
+    /**
+     * @param document the name of the document.
+     * @return The near duplicates collapsed into the document (empty if there are none).
+     */
+    ArrayList<String> getDuplicates(String document) {
+        return duplicates.getOrDefault(document, new ArrayList<>());
+    }
+
+    /**
+     * Builds the ImpactIndex quantizing the weights of the words to 8 bits. It must be called after
+     * calculating the weights.
+     *
+     * @param keepPostings if false, the Postings of the words are removed (keeping only the idf values) and
+     *                     the queries can only be evaluated with the impacts.
+     */
+    void buildImpactIndex(boolean keepPostings) {
+
+        impactIndex = new ImpactIndex(postings);
+
+        if (!keepPostings) {
+            postings.clear();
+        }
+    }
+
+    /**
+     * Builds the champion lists: for each word, the documents with the highest weights, sorted by document id
+     * like the Postings. It must be called after calculating the weights.
+     *
+     * @param size the maximum number of documents of each champion list.
+     */
+    void buildChampionLists(int size) {
+
+        champions = new HashMap<>();
+
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+
+            Postings list = entry.getValue();
+
+            if (list.size() <= size) {
+                champions.put(entry.getKey(), list);
+                continue;
+            }
+
+            double[] sorted = list.getWeights().clone();
+            Arrays.sort(sorted);
+            double threshold = sorted[sorted.length - size];
+            int above = 0;
+
+            for (double weight : list.getWeights()) {
+                if (weight > threshold) {
+                    ++above;
+                }
+            }
+
+            int[] documents = new int[size];
+            double[] weights = new double[size];
+            int ties = size - above, length = 0;
+
+            for (int i = 0; i < list.size(); ++i) {
+                double weight = list.getWeights()[i];
+
+                if (weight > threshold || (weight == threshold && ties-- > 0)) {
+                    documents[length] = list.getDocuments()[i];
+                    weights[length] = weight;
+                    ++length;
+                }
+            }
+
+            champions.put(entry.getKey(), new Postings(documents, weights));
+        }
+    }
+
+    /**
+     * Builds the clusters of the document vectors for the cluster pruned search. It must be called after
+     * calculating the weights.
+     */
+    void buildClusters() {
+
+        ForwardIndex vectors = new ForwardIndex(dictionary, postings, documentNames.size(), 0);
+        clusters = new DocumentClusters(vectors, dictionary.size(), 0L);
+    }
+
+    /**
+     * Builds the ForwardIndex with the top weighted words of each document, used to search the documents
+     * similar to a document. It must be called after calculating the weights.
+     *
+     * @param maxTerms the maximum number of words kept for each document.
+     */
+    void buildForwardIndex(int maxTerms) {
+        forwardIndex = new ForwardIndex(dictionary, postings, documentNames.size(), maxTerms);
+    }
+
+    /**
+     * Builds the k-gram index of the dictionary used to suggest corrections for the query words that are not
+     * in the Index. It must be called after calculating the weights.
+     *
+     * @param surfaceForms the words of the titles and the texts and the number of documents that contain them,
+     *                     to show the suggestions as words instead of stems (null if they are not counted).
+     */
+    void buildSpelling(HashMap<String, Integer> surfaceForms) {
+        spelling = new KGramIndex(dictionary, postings, surfaceForms);
+    }
+
+    /**
+     * Builds the CompletionTrie used to complete the prefixes typed by the user.
+     *
+     * @param surfaceForms the words of the titles and the texts and the number of documents that contain them.
+     * @param size         the number of completions kept for each prefix.
+     */
+    void buildCompletions(HashMap<String, Integer> surfaceForms, int size) {
+        completions = new CompletionTrie(surfaceForms, size);
     }
 
     /**
@@ -141,13 +483,13 @@ class Index implements Serializable {
      * @param words    the document's words.
      */
     void addWords(String document, String[] words) {
-        documents.get(document).setWordsFrequency(words);
+        documents.get(document).setWordsFrequency(words, vocabulary);
     }
 
     /**
      * @return The Index of words of the document collection.
      */
-    HashMap<String, Pair<Double, HashMap<String, Double>>> getIndex() {
+    HashMap<String, Pair<Double, StringDoubleMap>> getIndex() {
         return words;
     }
 
@@ -155,15 +497,46 @@ class Index implements Serializable {
      * Returns a Pair with the information of the word in the collection.
      * The structure of the Pair is:
      * First: the idf value of that word.
-     * Second: a HashMap with the documents that contains that word and the wn value for the word in that document.
+     * Second: a StringDoubleMap with the documents that contains that word and their frequency (only before calculating
+     * the weights, then it is null and the weights are in the Postings of the word).
      *
      * @param key the word to search in the Index.
      * @return A pair with the information of that word.
      */
-    Pair<Double, HashMap<String, Double>> get(String key) {
+    Pair<Double, StringDoubleMap> get(String key) {
         return words.get(key);
     }
 
+    /**
+     * @param key the word to search in the Index.
+     * @return The Postings of the word or null if the word is not in the Index.
+     */
+    Postings getPostings(String key) {
+        return postings.get(key);
+    }
+
+    /**
+     * @param key the word to search in the titles.
+     * @return The Postings of the word in the titles or null if no title contains the word.
+     */
+    Postings getTitlePostings(String key) {
+        return titlePostings.get(key);
+    }
+
+    /**
+     * @return The Postings of all the words of the titles.
+     */
+    HashMap<String, Postings> getAllTitlePostings() {
+        return titlePostings;
+    }
+
+    /**
+     * @return The Postings of all the words of the Index.
+     */
+    HashMap<String, Postings> getAllPostings() {
+        return postings;
+    }
+
     /**
      * @return The number of documents that has the collection.
      */
@@ -171,6 +544,29 @@ class Index implements Serializable {
         return frequencies.size();
     }
 
+    /**
+     * @return The number of words of all the documents of the collection.
+     */
+    long getTotalWords() {
+        return totalWords;
+    }
+
+    /**
+     * @return The maximum frequency of a word for each document.
+     */
+    HashMap<String, Integer> getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * Inspects the footprint of the Index in the heap and on disk.
+     *
+     * @return a report with the size of each structure, the distribution of postings and the largest words.
+     */
+    IndexReport inspect() throws IOException {
+        return new IndexReport(this, 10);
+    }
+
     /**
      * @return The number of different words that has the collection of documents.
      */
@@ -178,8 +574,88 @@ class Index implements Serializable {
         return words.size();
     }
 
-    String getTopWords(String document, int number, ArrayList<String> usedWords) {
-        return documents.get(document).getTopWords(number, usedWords);
+    /**
+     * @return The sorted dictionary of words of the collection.
+     */
+    TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return The ImpactIndex of the collection or null if it has not been built.
+     */
+    ImpactIndex getImpactIndex() {
+        return impactIndex;
+    }
+
+    /**
+     * @return True if the Postings of the words were removed when building the ImpactIndex, so the queries can
+     * only be evaluated with the impacts.
+     */
+    boolean isImpactOnly() {
+        return impactIndex != null && postings.isEmpty() && !documentIds.isEmpty();
+    }
+
+    /**
+     * @param key the word to search in the champion lists.
+     * @return The champion list of the word or null if the word is not in the Index.
+     */
+    Postings getChampions(String key) {
+        return champions.get(key);
+    }
+
+    /**
+     * @return The champion lists of all the words of the Index or null if they have not been built.
+     */
+    HashMap<String, Postings> getAllChampions() {
+        return champions;
+    }
+
+    /**
+     * @return The clusters of the documents or null if they have not been built.
+     */
+    DocumentClusters getClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return The ForwardIndex of the documents or null if it has not been built.
+     */
+    ForwardIndex getForwardIndex() {
+        return forwardIndex;
+    }
+
+    /**
+     * @return The k-gram index of the dictionary or null if it has not been built.
+     */
+    KGramIndex getSpelling() {
+        return spelling;
+    }
+
+    /**
+     * @return The CompletionTrie of the collection or null if it has not been built.
+     */
+    CompletionTrie getCompletions() {
+        return completions;
+    }
+
+    /**
+     * @param document the name of the document.
+     * @return The id of the document or null if the document is not in the Index.
+     */
+    Integer getDocumentId(String document) {
+        return documentIds.get(document);
+    }
+
+    /**
+     * @return The names of the documents, where the position of each name is the id of the document.
+     */
+    ArrayList<String> getDocumentNames() {
+        return documentNames;
+    }
+
+    String getTopWords(String document, int number, HashSet<Integer> usedWords) {
+        return documents.get(document).getTopWords(number, usedWords, vocabulary);
     }
 
     /**
@@ -188,4 +664,11 @@ class Index implements Serializable {
     HashMap<String, DocumentInfo> getDocuments() {
         return documents;
     }
+
+    /**
+     * @return The TermVocabulary with the id of each stem word of the documents.
+     */
+    TermVocabulary getVocabulary() {
+        return vocabulary;
+    }
 }
@@ -0,0 +1,70 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+class IndexGeneration {
+
+    private volatile Index index;
+    private String name;
+    private AtomicInteger references;
+
+    /**
+     * Creates a new IndexGeneration object with:
+     * <p>
+     * 1- Index: the Index of this generation.
+     * 2- Name: the name of the file the Index was loaded from.
+     * 3- References: the number of holders of this generation. It starts at 1, the reference of the
+     * IndexManager while it is the current generation.
+     *
+     * @param index the Index of this generation.
+     * @param name  the name of the file the Index was loaded from.
+     */
+    IndexGeneration(Index index, String name) {
+
+        this.index = index;
+        this.name = name;
+        references = new AtomicInteger(1);
+    }
+
+    /**
+     * Adds a reference to this generation, unless it has already been released.
+     *
+     * @return true if the reference has been added.
+     */
+    boolean retain() {
+
+        int count;
+
+        do {
+            count = references.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+
+        return true;
+    }
+
+    /**
+     * Removes a reference to this generation. When nothing references it, the Index is released.
+     */
+    void release() {
+
+        if (references.decrementAndGet() == 0) {
+            index = null;
+        }
+    }
+
+    /**
+     * @return The Index of this generation.
+     */
+    Index getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The name of the file the Index was loaded from.
+     */
+    String getName() {
+        return name;
+    }
+
+}
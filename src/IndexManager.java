@@ -0,0 +1,172 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class IndexManager implements Closeable {
+
+    private String path;
+    private AtomicReference<IndexGeneration> current;
+    private ScheduledExecutorService watcher;
+
+    /**
+     * Creates a new IndexManager object loading the current generation of the Index:
+     * <p>
+     * 1- Path: the path of the Index. Each generation is saved in 'path.generation' and the file 'path.current'
+     * contains the name of the current one. If there is no such file, the Index is loaded from the path itself.
+     * 2- Current: the generation used by the new queries.
+     * 3- Watcher: the thread that checks if there is a new generation (only if it is started).
+     *
+     * @param path the path of the Index.
+     */
+    IndexManager(String path) throws IOException {
+
+        this.path = path;
+        String name = readPointer(path);
+        current = new AtomicReference<>(new IndexGeneration(load(name), name));
+    }
+
+    /**
+     * Saves the Index as a new generation and points the file 'path.current' to it with an atomic move, so a
+     * running query process never sees a partially written Index. Only the new generation and the previous one
+     * are kept, an old generation that can't be deleted yet (e.g. still open by a query process) is left for the
+     * next save.
+     *
+     * @param index the Index to be saved.
+     * @param path  the path of the Index.
+     */
+    static void save(Index index, String path) throws IOException {
+
+        String previous = readPointer(path);
+        Path file = Paths.get(path + "." + System.currentTimeMillis());
+
+        try (ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            os.writeObject(index);
+        }
+
+        Path pointer = Paths.get(path + ".current");
+        Path temporal = Paths.get(path + ".current.tmp");
+        Files.write(temporal, file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporal, pointer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = Paths.get(path).getFileName().toString() + ".";
+
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(directory, prefix + "[0-9]*")) {
+            for (Path generation : generations) {
+                if (!generation.equals(file.toAbsolutePath()) && !generation.equals(Paths.get(previous).toAbsolutePath())) {
+                    try {
+                        Files.deleteIfExists(generation);
+                    } catch (IOException e) {
+                        System.err.println("The old generation " + generation.getFileName()
+                                + " could not be deleted, it will be deleted with the next save: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the current generation of the Index.
+     *
+     * @param path the path of the Index.
+     * @return the path written in 'path.current' or the path itself if there is no such file.
+     */
+    private static String readPointer(String path) throws IOException {
+
+        Path pointer = Paths.get(path + ".current");
+
+        if (!Files.exists(pointer)) {
+            return path;
+        }
+
+        String name = new String(Files.readAllBytes(pointer), StandardCharsets.UTF_8).trim();
+        Path parent = Paths.get(path).getParent();
+
+        return parent == null ? name : parent.resolve(name).toString();
+    }
+
+    /**
+     * Loads the Index of the document's collection from a file and returns it.
+     *
+     * @param path the path where the Index is located.
+     * @return the Index of the document's collection.
+     */
+    private static Index load(String path) throws IOException {
+
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            return (Index) ois.readObject();
+
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Starts checking periodically if there is a new generation of the Index. A new generation is loaded in
+     * the background and then swapped in, while the queries already running finish with the previous one. A
+     * generation that can not be loaded is reported and checked again in the next check.
+     *
+     * @param seconds the seconds between checks.
+     */
+    void watch(int seconds) {
+
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                String name = readPointer(path);
+                if (!name.equals(current.get().getName())) {
+                    publish(new IndexGeneration(load(name), name));
+                    System.out.println("New generation of the Index loaded: '" + name + "'.");
+                }
+            } catch (IOException | RuntimeException e) { //Any exception would cancel the next checks
+                System.err.println("The new generation of the Index could not be loaded: " + e);
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Makes a generation the current one and releases the reference of the manager to the previous one, which
+     * is released once no query holds it.
+     *
+     * @param generation the new generation.
+     */
+    void publish(IndexGeneration generation) {
+        current.getAndSet(generation).release();
+    }
+
+    /**
+     * Returns the current generation with a new reference, that must be released once the query has finished.
+     *
+     * @return the current generation of the Index.
+     */
+    IndexGeneration acquire() {
+
+        while (true) {
+            IndexGeneration generation = current.get();
+            if (generation.retain()) {
+                return generation;
+            }
+        }
+    }
+
+    /**
+     * Stops checking if there is a new generation of the Index.
+     */
+    @Override
+    public void close() {
+
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+class IndexReport {
+
+    private LinkedHashMap<String, Long> heapBytes;
+    private LinkedHashMap<String, Long> diskBytes;
+    private TreeMap<Integer, Integer> postingsDistribution;
+    private ArrayList<Pair<String, Double>> largestWords;
+    private int totalDocuments, numberOfWords;
+    private double averageLength, gapBits;
+
+    /**
+     * Creates a new IndexReport object with the footprint of an Index:
+     * <p>
+     * 1- HeapBytes: an estimation of the bytes of each structure in the heap (64 bits JVM with compressed
+     * references: 12 bytes of header per object, 4 bytes per reference and objects aligned to 8 bytes).
+     * 2- DiskBytes: the bytes of each structure in the serialized Index.
+     * 3- PostingsDistribution: the number of words for each range of postings (1, 2-3, 4-7, ...).
+     * 4- LargestWords: the words with the most postings.
+     * 5- TotalDocuments and AverageLength: the number of documents and their average number of words.
+     * 6- GapBits: the bits per posting if the gaps between the document ids were coded with Elias gamma.
+     *
+     * @param index        the Index to inspect.
+     * @param largestWords the number of largest words in the report.
+     */
+    IndexReport(Index index, int largestWords) throws IOException {
+
+        heapBytes = new LinkedHashMap<>();
+        diskBytes = new LinkedHashMap<>();
+        postingsDistribution = new TreeMap<>();
+        totalDocuments = index.getTotalDocuments();
+        numberOfWords = index.getNumberOfWords();
+        averageLength = totalDocuments == 0 ? 0.0 : (double) index.getTotalWords() / totalDocuments;
+
+        inspectWords(index, largestWords);
+        inspectDocuments(index.getDocuments());
+        heapBytes.put("Term vocabulary", list(index.getVocabulary().size()) + strings(index.getVocabulary().getTerms())
+                + array(index.getVocabulary().capacity()) + align(16 + 4L * index.getVocabulary().capacity()));
+        heapBytes.put("Document frequencies", hashMap(index.getFrequencies().size())
+                + strings(index.getFrequencies().keySet()) + index.getFrequencies().size() * 16L);
+        heapBytes.put("Document ids", list(index.getDocumentNames().size()) + hashMap(index.getDocumentNames().size())
+                + index.getDocumentNames().size() * 16L);
+
+        if (index.getDictionary() != null) {
+            heapBytes.put("Dictionary", array(index.getDictionary().size()));
+        }
+
+        if (index.getImpactIndex() != null) {
+            heapBytes.put("Impact postings", impactBytes(index));
+        }
+
+        heapBytes.put("Title postings", postingsBytes(index.getAllTitlePostings()));
+
+        if (index.getForwardIndex() != null) {
+            heapBytes.put("Forward index", forwardBytes(index.getForwardIndex()));
+        }
+
+        if (index.getAllChampions() != null) {
+            heapBytes.put("Champion lists", championBytes(index));
+        }
+
+        diskBytes.put("Vocabulary", serializedSize(index.getIndex()));
+        diskBytes.put("Postings", serializedSize(index.getAllPostings()));
+        diskBytes.put("Title postings", serializedSize(index.getAllTitlePostings()));
+        diskBytes.put("Document information", serializedSize(index.getDocuments()));
+        diskBytes.put("Term vocabulary", serializedSize(index.getVocabulary()));
+        diskBytes.put("Document frequencies", serializedSize(index.getFrequencies()));
+        diskBytes.put("Document ids", serializedSize(index.getDocumentNames()));
+        diskBytes.put("Dictionary", serializedSize(index.getDictionary()));
+        diskBytes.put("Impact postings", serializedSize(index.getImpactIndex()));
+        diskBytes.put("Champion lists", serializedSize(index.getAllChampions()));
+        diskBytes.put("Clusters", serializedSize(index.getClusters()));
+        diskBytes.put("Forward index", serializedSize(index.getForwardIndex()));
+        diskBytes.put("Spelling k-grams", serializedSize(index.getSpelling()));
+        diskBytes.put("Completions", serializedSize(index.getCompletions()));
+    }
+
+    /**
+     * Measures the postings and the vocabulary of the Index.
+     *
+     * @param index        the Index to inspect.
+     * @param largestWords the number of largest words in the report.
+     */
+    private void inspectWords(Index index, int largestWords) {
+
+        long vocabulary = hashMap(index.getIndex().size()) + hashMap(index.getAllPostings().size());
+        long postings = 0, bits = 0, numberOfPostings = 0;
+        PriorityQueue<Pair<String, Double>> top = new PriorityQueue<>((a, b) -> a.getSecond().compareTo(b.getSecond()));
+
+        for (String word : index.getIndex().keySet()) {
+            vocabulary += string(word) + 24 + 16;
+        }
+
+        for (Map.Entry<String, Postings> entry : index.getAllPostings().entrySet()) {
+
+            int size = entry.getValue().size();
+            postings += 24 + align(16 + 4L * size) + align(16 + 8L * size);
+            bits += DocumentOrdering.gammaBits(entry.getValue().getDocuments());
+            numberOfPostings += size;
+
+            int bucket = Integer.highestOneBit(Math.max(1, size));
+            postingsDistribution.put(bucket, postingsDistribution.getOrDefault(bucket, 0) + 1);
+
+            if (top.size() < largestWords) {
+                top.add(new Pair<>(entry.getKey(), (double) size));
+            } else if (largestWords > 0 && size > top.peek().getSecond()) {
+                top.poll();
+                top.add(new Pair<>(entry.getKey(), (double) size));
+            }
+        }
+
+        largestWords = top.size();
+        this.largestWords = new ArrayList<>();
+
+        for (int i = 0; i < largestWords; ++i) {
+            this.largestWords.add(0, top.poll());
+        }
+
+        gapBits = numberOfPostings == 0 ? 0.0 : (double) bits / numberOfPostings;
+        heapBytes.put("Vocabulary keys", vocabulary);
+        heapBytes.put("Postings", postings);
+    }
+
+    /**
+     * Measures the information of the documents.
+     *
+     * @param documents the information of the documents's collection.
+     */
+    private void inspectDocuments(HashMap<String, DocumentInfo> documents) {
+
+        long phrases = hashMap(documents.size()) + strings(documents.keySet());
+        long cleanPhrases = 0, wordsFrequency = 0;
+
+        for (DocumentInfo document : documents.values()) {
+
+            phrases += 24 + string(document.getTitle()) + list(document.getPhrases().size());
+            phrases += strings(document.getPhrases());
+            cleanPhrases += list(document.getCleanPhrases().size());
+            wordsFrequency += align(16 + 4L * document.getTerms().length) + align(16 + 4L * document.getFrequencies().length);
+
+            for (int[] phrase : document.getCleanPhrases()) {
+                cleanPhrases += align(16 + 4L * phrase.length);
+            }
+        }
+
+        heapBytes.put("Document phrases", phrases);
+        heapBytes.put("Document cleanPhrases", cleanPhrases);
+        heapBytes.put("Document wordsFrequency", wordsFrequency);
+    }
+
+    /**
+     * @return The estimated bytes of the impact postings.
+     */
+    private static long impactBytes(Index index) {
+
+        long bytes = hashMap(index.getIndex().size());
+
+        for (String word : index.getIndex().keySet()) {
+            ImpactPostings postings = index.getImpactIndex().get(word);
+            if (postings != null) {
+                bytes += 24 + align(16 + 4L * postings.size()) + align(16 + postings.size());
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return The estimated bytes of the champion lists. The words with fewer postings than the size of the
+     * champion lists share their Postings, so only the map entry is counted for them.
+     */
+    private static long championBytes(Index index) {
+
+        long bytes = hashMap(index.getAllChampions().size());
+
+        for (Map.Entry<String, Postings> entry : index.getAllChampions().entrySet()) {
+            Postings champions = entry.getValue();
+            if (champions != index.getPostings(entry.getKey())) {
+                bytes += 24 + align(16 + 4L * champions.size()) + align(16 + 8L * champions.size());
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return The estimated bytes of the Postings of some words, with their map.
+     */
+    private static long postingsBytes(HashMap<String, Postings> postings) {
+
+        long bytes = hashMap(postings.size()) + strings(postings.keySet());
+
+        for (Postings list : postings.values()) {
+            bytes += 24 + align(16 + 4L * list.size()) + align(16 + 8L * list.size());
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return The estimated bytes of the ForwardIndex.
+     */
+    private static long forwardBytes(ForwardIndex forwardIndex) {
+
+        long bytes = 3 * array(forwardIndex.size()) + align(16 + 8L * forwardIndex.size());
+
+        for (int document = 0; document < forwardIndex.size(); ++document) {
+            int size = forwardIndex.getTerms(document).length;
+            bytes += align(16 + 4L * size) + align(16 + 8L * size);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return The bytes of an object once serialized.
+     */
+    private static long serializedSize(Object object) throws IOException {
+
+        final long[] bytes = {0};
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                ++bytes[0];
+            }
+
+            @Override
+            public void write(byte[] b, int offset, int length) {
+                bytes[0] += length;
+            }
+        };
+
+        try (ObjectOutputStream os = new ObjectOutputStream(counter)) {
+            os.writeObject(object);
+        }
+
+        return bytes[0];
+    }
+
+    /**
+     * @return The bytes rounded up to the alignment of the objects.
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) / 8 * 8;
+    }
+
+    /**
+     * @return The estimated bytes of a String and its characters.
+     */
+    private static long string(String text) {
+        return text == null ? 0 : 24 + align(16 + 2L * text.length());
+    }
+
+    /**
+     * @return The estimated bytes of an array of references.
+     */
+    private static long array(int length) {
+        return align(16 + 4L * length);
+    }
+
+    /**
+     * @return The estimated bytes of an ArrayList, without its elements.
+     */
+    private static long list(int size) {
+        return 24 + array(size);
+    }
+
+    /**
+     * @return The estimated bytes of a HashMap with its table and entries, without its keys and values.
+     */
+    private static long hashMap(int size) {
+        return 48 + array(Integer.highestOneBit(Math.max(1, size * 4 / 3)) * 2) + 32L * size;
+    }
+
+    /**
+     * @return The estimated bytes of a collection of Strings.
+     */
+    private static long strings(Collection<String> strings) {
+
+        long bytes = 0;
+
+        for (String text : strings) {
+            bytes += string(text);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return A String with the footprint of the Index, ready to be printed.
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+        long totalHeap = 0, totalDisk = 0;
+
+        sb.append("Documents: ").append(totalDocuments).append(".\n");
+        sb.append("Average document length: ").append(String.format("%.1f", averageLength)).append(" words.\n");
+        sb.append("Different words: ").append(numberOfWords).append(".\n");
+        sb.append("Document id gaps: ").append(String.format("%.2f", gapBits)).append(" bits per posting (Elias gamma).\n");
+        sb.append("\nEstimated heap bytes per structure:\n");
+
+        for (Map.Entry<String, Long> entry : heapBytes.entrySet()) {
+            sb.append("  ").append(entry.getKey()).append(": ").append(megabytes(entry.getValue())).append("\n");
+            totalHeap += entry.getValue();
+        }
+
+        sb.append("  Total: ").append(megabytes(totalHeap)).append("\n");
+        sb.append("\nSerialized bytes per section:\n");
+
+        for (Map.Entry<String, Long> entry : diskBytes.entrySet()) {
+            sb.append("  ").append(entry.getKey()).append(": ").append(megabytes(entry.getValue())).append("\n");
+            totalDisk += entry.getValue();
+        }
+
+        sb.append("  Total: ").append(megabytes(totalDisk)).append("\n");
+        sb.append("\nWords by number of postings:\n");
+
+        for (Map.Entry<Integer, Integer> entry : postingsDistribution.entrySet()) {
+            int low = entry.getKey();
+            String range = low == 1 ? "1" : low + "-" + (2 * low - 1);
+            sb.append("  ").append(range).append(": ").append(entry.getValue()).append(" words\n");
+        }
+
+        sb.append("\nLargest words:\n");
+
+        for (Pair<String, Double> word : largestWords) {
+            sb.append("  ").append(word.getFirst()).append(": ")
+                    .append(String.format("%.0f", word.getSecond())).append(" postings\n");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return The bytes written in megabytes and bytes.
+     */
+    private static String megabytes(long bytes) {
+        return String.format("%.2f MB (%d bytes)", bytes / 1048576.0, bytes);
+    }
+
+}
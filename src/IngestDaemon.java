@@ -0,0 +1,302 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+class IngestDaemon {
+
+    private Utils util;
+    private Path collection;
+    private String indexPath, metricsPath;
+    private Charset charset;
+    private int refreshInterval;
+    private Consumer<Index> finisher;
+    private LinkedHashMap<String, Long> pending, unpublished;
+    private HashMap<String, Long> modified;
+    private int batches, added, changed, deleted, failed;
+    private double ingestSeconds;
+    private long totalDocuments;
+    private double totalSeconds;
+
+    /**
+     * Creates a new IngestDaemon object that watches the directory of the documents's collection and keeps
+     * the Index up to date with the documents created, modified and deleted, publishing a new generation of
+     * the Index at most every refresh interval:
+     * <p>
+     * 1- Util: the Utils with the Index before calculating the weights, where the documents are added and
+     * removed one by one.
+     * 2- Collection: the directory of the documents's collection.
+     * 3- IndexPath: the path of the Index, whose generations are swapped in by the query processes that watch it.
+     * 4- MetricsPath: the CSV file where the metrics of each batch are appended.
+     * 5- Charset: the charset of the documents that do not declare one.
+     * 6- RefreshInterval: the seconds a batch of changes waits before being published.
+     * 7- Finisher: calculates the weights and builds the optional structures of a copy of the Index.
+     * 8- Pending: the documents changed since the last batch and the time of their first change.
+     * 9- Unpublished: the documents already indexed whose generation has not been published yet (because
+     * publishing failed) and the time of their first change.
+     * 10- Added, Changed, Deleted, Failed and IngestSeconds: the metrics of the documents indexed since the last
+     * published batch.
+     * 11- Modified: the modification time of the file of each indexed document when it was read.
+     *
+     * @param util            the Utils of the documents's collection.
+     * @param collection      the directory of the documents's collection.
+     * @param indexPath       the path of the Index.
+     * @param metricsPath     the path of the CSV file of the metrics.
+     * @param charset         the charset of the documents that do not declare one.
+     * @param refreshInterval the seconds a batch of changes waits before being published.
+     * @param finisher        calculates the weights and builds the optional structures of an Index.
+     */
+    IngestDaemon(Utils util, Path collection, String indexPath, String metricsPath, Charset charset,
+                 int refreshInterval, Consumer<Index> finisher) {
+
+        this.util = util;
+        this.collection = collection;
+        this.indexPath = indexPath;
+        this.metricsPath = metricsPath;
+        this.charset = charset;
+        this.refreshInterval = refreshInterval;
+        this.finisher = finisher;
+        pending = new LinkedHashMap<>();
+        unpublished = new LinkedHashMap<>();
+        modified = new HashMap<>();
+    }
+
+    /**
+     * Indexes the documents already in the directory as the first batch and then waits for changes until the
+     * thread is interrupted. The changes are collected for the refresh interval since the first one, so a
+     * document saved several times is only indexed once, and then indexed and published as a batch. If a
+     * batch can not be published, it is published again with the next one or after another refresh interval.
+     */
+    void run() throws IOException, InterruptedException {
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+
+            collection.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            scan();
+
+            long batchStart = 0;
+
+            if (!pending.isEmpty() && !ingest()) {
+                batchStart = System.nanoTime();
+            }
+
+            while (!Thread.currentThread().isInterrupted()) {
+
+                long wait = pending.isEmpty() && unpublished.isEmpty() ? TimeUnit.SECONDS.toNanos(refreshInterval)
+                        : batchStart + TimeUnit.SECONDS.toNanos(refreshInterval) - System.nanoTime();
+                WatchKey key = wait > 0 ? watcher.poll(wait, TimeUnit.NANOSECONDS) : watcher.poll();
+
+                if (key != null) {
+
+                    if (pending.isEmpty() && unpublished.isEmpty()) {
+                        batchStart = System.nanoTime();
+                    }
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            scan();
+                        } else {
+                            pending.putIfAbsent(((Path) event.context()).toString(), System.nanoTime());
+                        }
+                    }
+
+                    key.reset();
+                }
+
+                if ((!pending.isEmpty() || !unpublished.isEmpty())
+                        && System.nanoTime() - batchStart >= TimeUnit.SECONDS.toNanos(refreshInterval) && !ingest()) {
+                    batchStart = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks as changed the documents of the directory that are not indexed or whose modification time is not
+     * the one of the indexed version, and the indexed documents that are no longer in the directory. Used at
+     * the start and when the WatchService has lost events.
+     */
+    private void scan() throws IOException {
+
+        long now = System.nanoTime();
+        HashSet<String> names = new HashSet<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(collection)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                Long time = modified.get(name);
+                names.add(name);
+
+                if (time == null || time != Files.getLastModifiedTime(path).toMillis()) {
+                    pending.putIfAbsent(name, now);
+                }
+            }
+        }
+
+        for (String name : util.getIndex().getDocuments().keySet()) {
+            if (!names.contains(name)) {
+                pending.putIfAbsent(name, now);
+            }
+        }
+    }
+
+    /**
+     * Indexes the pending documents: the previous version of each one is removed from the Index and the
+     * documents that still exist are indexed again. Then a copy of the Index is finished and saved as a new
+     * generation, and the metrics of the batch are printed and appended to the metrics file, with the share of
+     * the refresh interval spent publishing (a warning is printed if it exceeds the interval). If the generation
+     * can not be published, the error is printed and the documents of the batch are kept as unpublished, so
+     * they are published with the next batch.
+     *
+     * @return true if the batch was published.
+     */
+    private boolean ingest() {
+
+        long start = System.nanoTime();
+
+        for (String name : pending.keySet()) {
+
+            Path path = collection.resolve(name);
+
+            try {
+                modified.remove(name);
+                boolean indexed = util.deleteDocument(name);
+
+                if (Files.isRegularFile(path)) {
+                    long time = Files.getLastModifiedTime(path).toMillis(); //Read first, so a later change is seen
+                    util.indexDocument(path.toFile(), ByteBuffer.wrap(Files.readAllBytes(path)), charset);
+                    modified.put(name, time);
+                    if (indexed) {
+                        ++changed;
+                    } else {
+                        ++added;
+                    }
+                } else if (indexed) {
+                    ++deleted;
+                }
+
+            } catch (Exception e) {
+                System.err.println("The document '" + name + "' could not be indexed: " + e.getMessage());
+                ++failed;
+            }
+        }
+
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            unpublished.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        pending.clear();
+
+        long analyzed = System.nanoTime();
+        String generation;
+
+        try {
+            generation = publish();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("The batch could not be published, it will be published again with the next one: "
+                    + e.getMessage());
+            ingestSeconds += (analyzed - start) / 1e9;
+            return false;
+        }
+
+        long published = System.nanoTime();
+
+        double maxFreshness = 0.0, meanFreshness = 0.0;
+
+        for (long time : unpublished.values()) {
+            double freshness = (published - time) / 1e6;
+            maxFreshness = Math.max(maxFreshness, freshness);
+            meanFreshness += freshness / unpublished.size();
+        }
+
+        int documents = added + changed;
+        double seconds = ingestSeconds + (analyzed - start) / 1e9;
+        totalDocuments += documents;
+        totalSeconds += seconds;
+        ++batches;
+
+        System.out.println("Batch " + batches + ": " + added + " added, " + changed + " changed, " + deleted
+                + " deleted, " + failed + " failed; " + util.getIndex().getDocuments().size() + " documents indexed.");
+        double publishSeconds = (published - analyzed) / 1e9;
+        double publishShare = refreshInterval > 0 ? publishSeconds / refreshInterval : 0.0;
+
+        System.out.println("Ingest: " + String.format("%.0f", seconds > 0 ? documents / seconds : 0.0)
+                + " documents/s (" + String.format("%.0f", totalSeconds > 0 ? totalDocuments / totalSeconds : 0.0)
+                + " documents/s since the start). Publish: " + String.format("%.3f", publishSeconds)
+                + " seconds (" + String.format("%.1f", publishShare * 100) + "% of the refresh interval).");
+
+        if (publishShare > 1.0) {
+            System.out.println("The publish takes longer than the refresh interval, the collection is too large "
+                    + "for it.");
+        }
+
+        System.out.println("Freshness: " + String.format("%.0f", meanFreshness) + " ms mean, "
+                + String.format("%.0f", maxFreshness) + " ms max. Generation '" + generation + "'.");
+        System.out.println();
+
+        try {
+            writeMetrics(added, changed, deleted, failed, seconds, publishSeconds, publishShare, meanFreshness,
+                    maxFreshness);
+        } catch (IOException e) {
+            System.err.println("The metrics of the batch could not be written: " + e.getMessage());
+        }
+
+        unpublished.clear();
+        added = changed = deleted = failed = 0;
+        ingestSeconds = 0.0;
+
+        return true;
+    }
+
+    /**
+     * Copies the Index, finishes the copy and saves it as a new generation. The Index of the daemon keeps the
+     * frequencies of the words, so the next batch can still add and remove documents. Only the frequencies of
+     * the words and the ids of the documents are copied, the rest of the Index is shared with the copy.
+     * <p>
+     * Only the indexing of the documents is incremental: the weights, the optional structures and the saved
+     * generation are calculated again for the whole collection, so the cost of a publish grows with the size
+     * of the collection, not with the size of the batch. Once a publish takes longer than the refresh
+     * interval, the generations are published back to back and the freshness of the Index only gets worse, so
+     * the refresh interval caps the size of the collection the daemon can keep up to date.
+     *
+     * @return the name of the new generation.
+     */
+    private String publish() throws IOException {
+
+        Index index = util.getIndex().snapshot();
+        finisher.accept(index);
+        IndexManager.save(index, indexPath);
+
+        return new String(Files.readAllBytes(Paths.get(indexPath + ".current")), "UTF-8").trim();
+    }
+
+    /**
+     * Appends the metrics of a batch to the metrics file, writing the header if the file is new.
+     */
+    private void writeMetrics(int added, int changed, int deleted, int failed, double ingestSeconds,
+                              double publishSeconds, double publishShare, double meanFreshness,
+                              double maxFreshness) throws IOException {
+
+        boolean header = !new File(metricsPath).exists();
+
+        try (PrintWriter pw = new PrintWriter(new FileWriter(metricsPath, true))) {
+            if (header) {
+                pw.println("time,batch,added,changed,deleted,failed,documents,ingest_seconds,publish_seconds,"
+                        + "publish_interval_share,freshness_mean_ms,freshness_max_ms");
+            }
+            pw.println(System.currentTimeMillis() + "," + batches + "," + added + "," + changed + "," + deleted + ","
+                    + failed + "," + util.getIndex().getDocuments().size() + ","
+                    + String.format("%.3f,%.3f,%.3f,%.0f,%.0f", ingestSeconds, publishSeconds, publishShare,
+                    meanFreshness, maxFreshness));
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+import org.tartarus.snowball.ext.spanishStemmer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+class KGramIndex implements Serializable {
+
+    private static final int K = 2;
+    private static final int MAX_EDITS = 2;
+    private static final double MIN_OVERLAP = 0.3;
+
+    private TermDictionary dictionary;
+    private int[] documentFrequencies, gramCounts;
+    private HashMap<String, int[]> grams;
+    private String[] surfaceForms;
+    private transient int[] overlaps, touched;
+
+    /**
+     * Creates a new KGramIndex object over the words of the dictionary, to suggest the words of the Index that
+     * are closest to a misspelled word:
+     * <p>
+     * 1- Dictionary: the sorted words of the collection.
+     * 2- DocumentFrequencies: the number of documents that contain each word of the dictionary.
+     * 2b- GramCounts: the number of different k-grams of each word of the dictionary.
+     * 3- Grams: for each k-gram (2 characters, with '$' marking the start and the end of the word), the ids
+     * of the words that contain it, sorted lowest to highest.
+     * 4- SurfaceForms: the most frequent word of the documents with each stem word of the dictionary, shown to
+     * the user instead of the stem (null if it is not known).
+     * 5- Overlaps and Touched: the buffers of the suggestions, created on the first one and reused by the
+     * next ones.
+     *
+     * @param dictionary   the sorted words of the collection.
+     * @param postings     the Postings of each word of the Index.
+     * @param surfaceForms the words of the titles and the texts and the number of documents that contain them
+     *                     (null if they are not counted).
+     */
+    KGramIndex(TermDictionary dictionary, HashMap<String, Postings> postings, HashMap<String, Integer> surfaceForms) {
+
+        HashMap<String, ArrayList<Integer>> lists = new HashMap<>();
+        this.dictionary = dictionary;
+        documentFrequencies = new int[dictionary.size()];
+        gramCounts = new int[dictionary.size()];
+        grams = new HashMap<>();
+
+        for (int term = 0; term < dictionary.size(); ++term) {
+
+            Postings list = postings.get(dictionary.get(term));
+            documentFrequencies[term] = list == null ? 0 : list.size();
+
+            LinkedHashSet<String> termGrams = grams(dictionary.get(term));
+            gramCounts[term] = termGrams.size();
+
+            for (String gram : termGrams) {
+                lists.computeIfAbsent(gram, k -> new ArrayList<>()).add(term);
+            }
+        }
+
+        for (Map.Entry<String, ArrayList<Integer>> entry : lists.entrySet()) {
+            int[] terms = new int[entry.getValue().size()];
+            for (int i = 0; i < terms.length; ++i) {
+                terms[i] = entry.getValue().get(i);
+            }
+            grams.put(entry.getKey(), terms);
+        }
+
+        this.surfaceForms = new String[dictionary.size()];
+
+        if (surfaceForms != null) {
+            setSurfaceForms(surfaceForms);
+        }
+    }
+
+    /**
+     * Stems the words of the documents and keeps, for each stem word of the dictionary, the one contained in
+     * more documents (the first one in alphabetical order if there is a tie).
+     *
+     * @param words the words of the titles and the texts and the number of documents that contain them.
+     */
+    private void setSurfaceForms(HashMap<String, Integer> words) {
+
+        spanishStemmer stemmer = new spanishStemmer();
+        int[] counts = new int[dictionary.size()];
+
+        for (Map.Entry<String, Integer> entry : words.entrySet()) {
+
+            stemmer.setCurrent(entry.getKey());
+            String stem = stemmer.stem() ? stemmer.getCurrent() : entry.getKey();
+            int term = dictionary.indexOf(stem);
+
+            if (term != -1 && (entry.getValue() > counts[term] || (entry.getValue() == counts[term]
+                    && entry.getKey().compareTo(surfaceForms[term]) < 0))) {
+                counts[term] = entry.getValue();
+                surfaceForms[term] = entry.getKey();
+            }
+        }
+    }
+
+    /**
+     * @param word a stem word of the dictionary.
+     * @return The most frequent word of the documents with that stem (the stem itself if it is not known).
+     */
+    String getSurfaceForm(String word) {
+
+        int term = dictionary.indexOf(word);
+        return term == -1 || surfaceForms[term] == null ? word : surfaceForms[term];
+    }
+
+    /**
+     * @return The different k-grams of a word, with '$' marking its start and its end.
+     */
+    private static LinkedHashSet<String> grams(String word) {
+
+        LinkedHashSet<String> grams = new LinkedHashSet<>();
+        String padded = "$" + word + "$";
+
+        for (int i = 0; i + K <= padded.length(); ++i) {
+            grams.add(padded.substring(i, i + K));
+        }
+
+        return grams;
+    }
+
+    /**
+     * Suggests the words of the dictionary closest to a word. The candidates are the words that share at least
+     * 30% of their k-grams with the word (Jaccard coefficient), and they are ranked by edit distance (at most 2)
+     * and then by document frequency. The words whose length differs in more than 2 characters are discarded
+     * the first time they are found, and the k-grams shared with the rest are counted in an array indexed by
+     * word id. The array is reused by every suggestion and only the entries of the words found are reset, so a
+     * suggestion costs the length of the k-gram lists read, not the size of the dictionary.
+     *
+     * @param word   the word to correct.
+     * @param number the maximum number of suggestions.
+     * @return an array with the suggestions sorted best to worst.
+     */
+    synchronized ArrayList<String> suggest(String word, int number) {
+
+        if (overlaps == null) {
+            overlaps = new int[dictionary.size()]; //-1: the length of the word is too different
+            touched = new int[dictionary.size()];
+        }
+
+        LinkedHashSet<String> wordGrams = grams(word);
+        int size = 0;
+
+        for (String gram : wordGrams) {
+            int[] terms = grams.get(gram);
+            if (terms != null) {
+                for (int term : terms) {
+                    if (overlaps[term] == 0) {
+                        touched[size++] = term;
+                        if (Math.abs(dictionary.get(term).length() - word.length()) > MAX_EDITS) {
+                            overlaps[term] = -1;
+                            continue;
+                        }
+                    }
+                    if (overlaps[term] != -1) {
+                        ++overlaps[term];
+                    }
+                }
+            }
+        }
+
+        ArrayList<int[]> candidates = new ArrayList<>();
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(word, MAX_EDITS);
+
+        for (int t = 0; t < size; ++t) {
+
+            int id = touched[t];
+            int overlap = overlaps[id];
+            overlaps[id] = 0;
+
+            if (overlap == -1 || (double) overlap / (wordGrams.size() + gramCounts[id] - overlap) < MIN_OVERLAP) {
+                continue;
+            }
+
+            String term = dictionary.get(id);
+
+            int[] state = automaton.start();
+            for (int i = 0; i < term.length(); ++i) {
+                state = automaton.step(state, term.charAt(i));
+            }
+
+            int distance = automaton.distance(state);
+            if (distance <= MAX_EDITS && !term.equals(word)) {
+                candidates.add(new int[]{id, distance});
+            }
+        }
+
+        candidates.sort((a, b) -> a[1] != b[1] ? a[1] - b[1]
+                : documentFrequencies[b[0]] != documentFrequencies[a[0]] ? documentFrequencies[b[0]] - documentFrequencies[a[0]]
+                : a[0] - b[0]);
+
+        ArrayList<String> suggestions = new ArrayList<>();
+
+        for (int i = 0; i < candidates.size() && i < number; ++i) {
+            suggestions.add(dictionary.get(candidates.get(i)[0]));
+        }
+
+        return suggestions;
+    }
+
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+class KernelBenchmark {
+
+    private ArrayList<Postings> postings;
+    private int documents;
+    private long totalPostings;
+
+    /**
+     * Creates a new KernelBenchmark object that measures the ScoringKernels with:
+     * <p>
+     * 1- Postings: the longest postings lists of the Index, the ones that dominate the cost of a query.
+     * 2- Documents: the number of documents of the Index (the size of the score arrays).
+     * 3- TotalPostings: the number of postings of the lists.
+     *
+     * @param index the Index of the documents's collection.
+     * @param words the number of longest postings lists to measure.
+     */
+    KernelBenchmark(Index index, int words) {
+
+        PriorityQueue<Postings> top = new PriorityQueue<>((a, b) -> Integer.compare(a.size(), b.size()));
+
+        for (Postings list : index.getAllPostings().values()) {
+            if (top.size() < words) {
+                top.add(list);
+            } else if (words > 0 && list.size() > top.peek().size()) {
+                top.poll();
+                top.add(list);
+            }
+        }
+
+        postings = new ArrayList<>(top);
+        documents = index.getDocumentNames().size();
+        totalPostings = 0;
+
+        for (Postings list : postings) {
+            totalPostings += list.size();
+        }
+    }
+
+    /**
+     * Runs each kernel over all the postings lists, first to warm up the JIT compiler and then measuring the
+     * time, and checks that both kernels give the same scores.
+     *
+     * @param iterations the number of measured passes over the postings lists.
+     * @return a String with the nanoseconds per posting of each kernel, ready to be printed.
+     */
+    String run(int iterations) {
+
+        StringBuilder sb = new StringBuilder();
+        double[][] scores = new double[2][];
+
+        sb.append("Postings lists: ").append(postings.size()).append(" (").append(totalPostings)
+                .append(" postings, ").append(documents).append(" documents).\n");
+
+        if (totalPostings == 0) {
+            return sb.append("The Index has no postings to measure.").toString();
+        }
+
+        for (int mode = ScoringKernel.SCALAR; mode <= ScoringKernel.BLOCKED; ++mode) {
+
+            scores[mode] = new double[documents];
+
+            sb.append(mode == ScoringKernel.SCALAR ? "Scalar" : "Blocked").append(" kernel: ")
+                    .append(String.format("%.2f", measure(new ScoringKernel(mode), iterations, scores[mode])))
+                    .append(" ns per posting.\n");
+        }
+
+        double difference = 0.0;
+
+        for (int i = 0; i < documents; ++i) {
+            difference = Math.max(difference, Math.abs(scores[0][i] - scores[1][i]));
+        }
+
+        sb.append("Maximum difference between the scores: ").append(difference).append(".");
+
+        return sb.toString();
+    }
+
+    /**
+     * Measures a kernel over all the postings lists, first warming up the JIT compiler.
+     *
+     * @param mode       the mode of the ScoringKernel.
+     * @param iterations the number of measured passes over the postings lists.
+     * @return the nanoseconds per posting of the kernel (0 if there are no postings).
+     */
+    double nanosPerPosting(int mode, int iterations) {
+        return totalPostings == 0 ? 0.0 : measure(new ScoringKernel(mode), iterations, new double[documents]);
+    }
+
+    /**
+     * Runs a kernel over all the postings lists, first to warm up the JIT compiler and then measuring the time.
+     *
+     * @param kernel     the ScoringKernel to measure.
+     * @param iterations the number of measured passes over the postings lists.
+     * @param numerators the scores of the measured passes, with a position for each document.
+     * @return the nanoseconds per posting of the kernel.
+     */
+    private double measure(ScoringKernel kernel, int iterations, double[] numerators) {
+
+        double[] warmUp = new double[documents];
+        double[] norms = new double[documents];
+
+        for (int i = 0; i < iterations; ++i) {
+            pass(kernel, warmUp, norms);
+        }
+
+        norms = new double[documents];
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; ++i) {
+            pass(kernel, numerators, norms);
+        }
+
+        return (double) (System.nanoTime() - start) / (iterations * totalPostings);
+    }
+
+    /**
+     * Adds all the postings lists to the scores with the kernel.
+     */
+    private void pass(ScoringKernel kernel, double[] numerators, double[] norms) {
+
+        for (Postings list : postings) {
+            kernel.accumulate(list, 1.0, numerators, norms);
+        }
+    }
+
+}
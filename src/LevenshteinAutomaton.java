@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+class LevenshteinAutomaton {
+
+    private String word;
+    private int maxEdits;
+
+    /**
+     * Creates a new LevenshteinAutomaton object that accepts all the words within a maximum edit distance of a word.
+     * <p>
+     * Each state is the row of edit distances between the characters read so far and every prefix of the word,
+     * capped at maxEdits + 1, so the automaton is evaluated one character at a time while walking a sorted
+     * dictionary.
+     *
+     * @param word     the word accepted by the automaton.
+     * @param maxEdits the maximum number of insertions, deletions or substitutions.
+     */
+    LevenshteinAutomaton(String word, int maxEdits) {
+
+        this.word = word;
+        this.maxEdits = maxEdits;
+    }
+
+    /**
+     * @return The initial state of the automaton.
+     */
+    int[] start() {
+
+        int[] state = new int[word.length() + 1];
+
+        for (int i = 0; i < state.length; ++i) {
+            state[i] = Math.min(i, maxEdits + 1);
+        }
+
+        return state;
+    }
+
+    /**
+     * Returns the state reached after reading a character.
+     *
+     * @param state     the current state.
+     * @param character the character read.
+     * @return the next state.
+     */
+    int[] step(int[] state, char character) {
+
+        int[] next = new int[state.length];
+        next[0] = Math.min(state[0] + 1, maxEdits + 1);
+
+        for (int i = 1; i < state.length; ++i) {
+            int cost = word.charAt(i - 1) == character ? 0 : 1;
+            int distance = Math.min(Math.min(next[i - 1] + 1, state[i] + 1), state[i - 1] + cost);
+            next[i] = Math.min(distance, maxEdits + 1);
+        }
+
+        return next;
+    }
+
+    /**
+     * @param state a state of the automaton.
+     * @return true if the characters read so far are within the maximum edit distance of the word.
+     */
+    boolean isMatch(int[] state) {
+        return state[state.length - 1] <= maxEdits;
+    }
+
+    /**
+     * @param state a state of the automaton.
+     * @return true if some word that starts with the characters read so far can still be accepted.
+     */
+    boolean canMatch(int[] state) {
+        return Arrays.stream(state).min().getAsInt() <= maxEdits;
+    }
+
+    /**
+     * @param state a state of the automaton.
+     * @return The edit distance between the characters read so far and the word.
+     */
+    int distance(int[] state) {
+        return state[state.length - 1];
+    }
+
+}
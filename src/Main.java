@@ -1,21 +1,39 @@
 import jdk.nashorn.internal.parser.JSONParser;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
+import org.apache.commons.io.FilenameUtils;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Scanner;
 
 public class Main {
 
-    static private String collectionPath, indexPath;
+    static private final String CHECKPOINT_PATH = "index\\checkpoint";
+    static private final String ERROR_LOG_PATH = "index\\errors.log";
+    static private final String INGEST_METRICS_PATH = "index\\ingest.csv";
+    static private final int REORDERING_BENCHMARK_WORDS = 32, REORDERING_BENCHMARK_ITERATIONS = 100;
+    static private final int HEAP_SAMPLE_INTERVAL = 10;
+
+    static private String collectionPath, indexPath, evaluationQueries, evaluationQrels;
+    static private Charset charset;
     static private int programMode, relevantDocumentsQuery, relevantDocumentsPSR, topWordsPSR;
+    static private int maxExpansions, impactIndex, readAhead, indexRefreshInterval, statisticsCapacity;
+    static private int duplicateMode, scoringKernel, championListSize, clusterSearch, clusterProbes;
+    static private int forwardIndexTerms, spellingCorrection, completionSize, checkpointInterval;
+    static private int scalingDocumentLength, scalingQueries, documentReordering, parallelThreshold, evaluationDepth;
+    static private int ingestRefreshInterval;
+    static private int[] scalingSizes;
+    static private int numberOfErrors, pageOffset;
+    static private String pageQuery, pageCursor, pageGeneration;
+    static private double duplicateThreshold, titleBoost;
 
     /**
      * Loads the parameters for the aplication from the file 'confData.json'.
@@ -24,10 +42,54 @@ public class Main {
      * <p>
      * collectionPath: the path where the documents collection is located.
      * indexPath: the path where the Index is located.
-     * programMode: the program mode (0: generate Index; 1: search queries).
+     * programMode: the program mode (0: generate Index; 1: search queries; 2: benchmark the scoring kernels;
+     * 3: scaling test over synthetic collections; 4: evaluation of the search modes with relevance judgments;
+     * 5: keep the Index up to date with the changes of the collection directory).
      * relevantDocumentsQuery: the maximum number of relevant documents for a query.
      * relevantDocumentsPSR: the maximum number of relevant documents for the PSR.
      * topWordsPSR: the number of top words for the PSR.
+     * maxExpansions: the maximum number of words a prefix, wildcard or fuzzy query word is expanded to.
+     * impactIndex: the impact mode (0: exact weights only; 1: quantized impacts compared with the exact weights;
+     * 2: quantized impacts only, without the exact postings, so it can not be combined with titleBoost or
+     * clusterSearch, and the queries of an Index built in this mode are always evaluated with the impacts).
+     * charset: the charset of the documents that do not declare one.
+     * readAhead: the maximum number of documents read ahead of the analysis.
+     * indexRefreshInterval: the seconds between checks for a new generation of the Index (0: never).
+     * ingestRefreshInterval: the seconds the changes of the collection directory are collected before publishing
+     * a new generation of the Index with them. Each generation finishes and saves the whole collection again,
+     * so the publish time grows with the collection and must stay well below this interval.
+     * statisticsCapacity: the maximum number of words counted for the collection statistics (0: all of them).
+     * duplicateMode: what to do with the near duplicate documents (0: index them; 1: drop them; 2: collapse
+     * them into their original document).
+     * duplicateThreshold: the minimum estimated Jaccard similarity between near duplicates.
+     * scoringKernel: the kernel of the exact similarities (0: scalar; 1: blocked, vectorized by the JIT).
+     * championListSize: the number of documents of the champion list of each word for the fast queries (0: the
+     * champion lists are not built).
+     * clusterSearch: the cluster pruning mode (0: disabled; 1: cluster search compared with the exhaustive cosine;
+     * 2: cluster search only).
+     * clusterProbes: the number of clusters whose documents are scored in the cluster search.
+     * forwardIndexTerms: the number of top weighted words of each document kept to search similar documents (0:
+     * the ForwardIndex is not built).
+     * spellingCorrection: what to do with the query words that are not in the Index (0: nothing, the k-gram
+     * index is not built; 1: suggest the closest word; 2: replace them with the closest word). The suggestions
+     * are shown as the most frequent word of the documents with the stem of the closest word.
+     * completionSize: the number of completions returned for a prefix (0: the completions are not built).
+     * titleBoost: the weight of the similarity of the titles added to the similarity of the text (0: the words
+     * are only searched in the titles when they are written as 'title:word').
+     * checkpointInterval: the number of files processed between two checkpoints of the build (0: the build is
+     * not checkpointed and always starts from the beginning).
+     * documentReordering: the order of the document ids (0: the order the documents are read; 1: the documents
+     * that share words get nearby ids, so the gaps of the postings are smaller). The build prints the bits of the
+     * gaps and the time to score the longest postings lists with the ids before and after reordering, weighting a
+     * copy of the Index in the original order first, so it needs the memory of the postings twice.
+     * parallelThreshold: the minimum number of postings of a query to score its document ids in parallel ranges
+     * (0: the queries are always scored in a single thread).
+     * evaluationQueries: the path of the queries of the evaluation (a query per line: 'id text').
+     * evaluationQrels: the path of the relevance judgments of the evaluation (TREC qrels format).
+     * evaluationDepth: the cut-off k of P@k and nDCG@k in the evaluation.
+     * scalingSizes: the number of documents of each synthetic collection of the scaling test, separated by commas.
+     * scalingDocumentLength: the average number of words of the synthetic documents.
+     * scalingQueries: the number of queries run against each Index of the scaling test.
      */
     private static void loadParameters() throws IOException {
 
@@ -45,6 +107,38 @@ public class Main {
             relevantDocumentsQuery = Integer.parseInt(jsonObject.get("RelevantDocumentsQuery").toString());
             relevantDocumentsPSR = Integer.parseInt(jsonObject.get("RelevantDocumentsPSR").toString());
             topWordsPSR = Integer.parseInt(jsonObject.get("TopWordsPSR").toString());
+            maxExpansions = Integer.parseInt(jsonObject.get("MaxExpansions").toString());
+            impactIndex = Integer.parseInt(jsonObject.get("ImpactIndex").toString());
+            charset = Charset.forName(jsonObject.get("Charset").toString());
+            readAhead = Integer.parseInt(jsonObject.get("ReadAhead").toString());
+            indexRefreshInterval = Integer.parseInt(jsonObject.get("IndexRefreshInterval").toString());
+            ingestRefreshInterval = Integer.parseInt(jsonObject.get("IngestRefreshInterval").toString());
+            statisticsCapacity = Integer.parseInt(jsonObject.get("StatisticsCapacity").toString());
+            duplicateMode = Integer.parseInt(jsonObject.get("DuplicateMode").toString());
+            duplicateThreshold = Double.parseDouble(jsonObject.get("DuplicateThreshold").toString());
+            scoringKernel = Integer.parseInt(jsonObject.get("ScoringKernel").toString());
+            championListSize = Integer.parseInt(jsonObject.get("ChampionListSize").toString());
+            clusterSearch = Integer.parseInt(jsonObject.get("ClusterSearch").toString());
+            clusterProbes = Integer.parseInt(jsonObject.get("ClusterProbes").toString());
+            forwardIndexTerms = Integer.parseInt(jsonObject.get("ForwardIndexTerms").toString());
+            spellingCorrection = Integer.parseInt(jsonObject.get("SpellingCorrection").toString());
+            completionSize = Integer.parseInt(jsonObject.get("CompletionSize").toString());
+            checkpointInterval = Integer.parseInt(jsonObject.get("CheckpointInterval").toString());
+            titleBoost = Double.parseDouble(jsonObject.get("TitleBoost").toString());
+            documentReordering = Integer.parseInt(jsonObject.get("DocumentReordering").toString());
+            parallelThreshold = Integer.parseInt(jsonObject.get("ParallelThreshold").toString());
+            evaluationQueries = (String) jsonObject.get("EvaluationQueries");
+            evaluationQrels = (String) jsonObject.get("EvaluationQrels");
+            evaluationDepth = Integer.parseInt(jsonObject.get("EvaluationDepth").toString());
+            scalingSizes = Arrays.stream(jsonObject.get("ScalingSizes").toString().split(","))
+                    .mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+            scalingDocumentLength = Integer.parseInt(jsonObject.get("ScalingDocumentLength").toString());
+            scalingQueries = Integer.parseInt(jsonObject.get("ScalingQueries").toString());
+
+            if (impactIndex == 2 && (titleBoost > 0.0 || clusterSearch != 0)) {
+                System.err.println("ImpactIndex 2 removes the exact postings needed by TitleBoost and ClusterSearch.");
+                System.exit(1);
+            }
 
         } catch (IOException | ParseException e) {
             e.printStackTrace();
@@ -53,48 +147,93 @@ public class Main {
     }
 
     /**
-     * Saves the index in the path index/classes.obj' in order to be loaded in another execution.
+     * Writes a document that could not be processed in the error log, so the build skips it instead of
+     * aborting.
+     *
+     * @param file      the file of the document.
+     * @param exception the error thrown while processing it.
+     */
+    private static void logError(File file, Exception exception) throws IOException {
+
+        ++numberOfErrors;
+        System.err.println("Skipping '" + file.getName() + "': " + exception + ".");
+
+        try (FileWriter fw = new FileWriter(ERROR_LOG_PATH, true)) {
+            fw.write(file.getPath() + "\t" + exception + "\r\n");
+        }
+    }
+
+    /**
+     * Saves the index as a new generation in the path of the Index in order to be loaded in another execution
+     * (or swapped in by a running query process).
      *
      * @param index the object to be saved.
      */
     private static void saveIndex(Index index) throws IOException {
+        IndexManager.save(index, indexPath);
+    }
+
+    /**
+     * Calculates the weights of an Index and builds the optional structures enabled in the configuration.
+     *
+     * @param index        the Index of the document's collection.
+     * @param surfaceForms the words of the titles and the texts for the completions and the spelling suggestions
+     *                     (null if they are not counted).
+     */
+    private static void finishIndex(Index index, HashMap<String, Integer> surfaceForms) {
 
-        ByteArrayOutputStream bs = new ByteArrayOutputStream();
-        ObjectOutputStream os = new ObjectOutputStream(bs);
-        os.writeObject(index);
-        os.close();
-        byte[] bytes = bs.toByteArray();
-        Path path = Paths.get("index\\Index");
-        Files.write(path, bytes);
+        index.calculateWeights();
+
+        if (championListSize > 0) {
+            index.buildChampionLists(championListSize);
+        }
+
+        if (clusterSearch != 0) {
+            index.buildClusters();
+        }
+
+        if (forwardIndexTerms > 0) {
+            index.buildForwardIndex(forwardIndexTerms);
+        }
+
+        if (spellingCorrection != 0) {
+            index.buildSpelling(surfaceForms);
+        }
+
+        if (completionSize > 0) {
+            index.buildCompletions(surfaceForms, completionSize);
+        }
+
+        if (impactIndex != 0) {
+            index.buildImpactIndex(impactIndex == 1);
+        }
     }
 
     /**
-     * Loads the Index of the document's collection from the path 'index/classes.obj' and returns it.
+     * Loads the current generation of the Index of the document's collection and returns the manager that
+     * holds it. If the refresh interval is greater than 0, new generations are swapped in while running.
      *
-     * @param path the path where the Index.obj is located.
-     * @return the Index of the document's collection.
+     * @param path the path where the Index is located.
+     * @return the manager of the Index of the document's collection.
      */
-    private static Index loadIndex(String path) throws IOException {
+    private static IndexManager loadIndex(String path) throws IOException {
 
-        Index index = null;
+        IndexManager manager = null;
 
         try {
 
-            FileInputStream fis = new FileInputStream(path);
-            ObjectInputStream ois = new ObjectInputStream(fis);
-            index = (Index) ois.readObject();
-            ois.close();
-            fis.close();
+            manager = new IndexManager(path);
+
+            if (indexRefreshInterval > 0) {
+                manager.watch(indexRefreshInterval);
+            }
 
         } catch (FileNotFoundException e) {
             System.err.println("File not found.");
             System.exit(1);
-
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
         }
 
-        return index;
+        return manager;
     }
 
     /**
@@ -106,20 +245,42 @@ public class Main {
      * @param maxDocuments the maximum of relevants documents that will be returned.
      */
     private static void printQueriesInfo(ArrayList<Pair<String, Double>> top, Index index, String[] query, int maxDocuments) {
+        printQueriesInfo(top, index, query, maxDocuments, 0);
+    }
+
+    /**
+     * Prints all the relevant info of the most relevants documents for a query (if any), numbering them after
+     * the documents of the previous pages.
+     *
+     * @param top          the top of relevants documents for the given query.
+     * @param index        the Index of the documents's collection.
+     * @param query        the query to search.
+     * @param maxDocuments the maximum of relevants documents that will be returned.
+     * @param offset       the number of documents of the previous pages.
+     */
+    private static void printQueriesInfo(ArrayList<Pair<String, Double>> top, Index index, String[] query, int maxDocuments,
+                                         int offset) {
 
         DocumentInfo document;
 
         if (!top.isEmpty()) {
 
+            int[] words = index.getVocabulary().indexOf(query);
+
             System.out.println();
 
             for (int i = 0; i < top.size() && i < maxDocuments; ++i) {
                 document = index.getDocuments().get(top.get(i).getFirst());
-                System.out.println("Number: " + (i + 1) + ".");
+                System.out.println("Number: " + (offset + i + 1) + ".");
                 System.out.println("Name: '" + top.get(i).getFirst() + "'.");
                 System.out.println("Similarity: " + top.get(i).getSecond() + ".");
                 System.out.println("Title: " + document.getTitle() + ".");
-                System.out.println("Text: " + document.searchFullQuery(query) + ".");
+                System.out.println("Text: " + document.searchFullQuery(words) + ".");
+
+                if (!index.getDuplicates(top.get(i).getFirst()).isEmpty()) {
+                    System.out.println("Near duplicates: " + String.join(", ", index.getDuplicates(top.get(i).getFirst())) + ".");
+                }
+
                 System.out.println();
             }
 
@@ -129,12 +290,276 @@ public class Main {
         }
     }
 
+    /**
+     * Calculates the relevant documents for a query. The queries with words restricted to the titles (or with
+     * a title boost) are evaluated with the exact similarities over the fields. If the Index only has quantized
+     * impacts, the rest of the queries are always evaluated with them. A fast query is evaluated with the
+     * champion lists of the Index. Otherwise, if the Index has quantized impacts and the impact mode is enabled,
+     * the query is evaluated with them and (in mode 1) the rank quality lost compared with the exact cosine
+     * similarity is printed.
+     *
+     * @param index  the Index of the documents's collection.
+     * @param query  the query to search.
+     * @param number the number of relevant documents needed.
+     * @param fast   true to evaluate the query with the champion lists.
+     * @return an array with the relevant documents sorted highest to lowest (by similarity).
+     */
+    private static ArrayList<Pair<String, Double>> search(Index index, Query query, int number, boolean fast) {
+
+        query.setKernel(new ScoringKernel(scoringKernel));
+        query.setTitleBoost(titleBoost);
+
+        if (query.hasTitleWords() || titleBoost > 0.0) {
+            return exhaustiveSearch(query, number);
+        }
+
+        if (index.isImpactOnly()) {
+            return query.impactSimilarities(number);
+        }
+
+        if (fast) {
+            return query.championSimilarities(number);
+        }
+
+        if (impactIndex == 0 || index.getImpactIndex() == null) {
+
+            if (clusterSearch == 0 || index.getClusters() == null) {
+                return exhaustiveSearch(query, number);
+            }
+
+            ArrayList<Pair<String, Double>> top = query.clusterSimilarities(number, clusterProbes);
+
+            if (clusterSearch == 1) {
+                ArrayList<Pair<String, Double>> exact = query.similarities();
+                System.out.println("Overlap with the exact cosine top " + number + ": "
+                        + String.format("%.1f", Query.overlap(top, exact, number) * 100) + "%.");
+                System.out.println("Documents scored: " + query.getDocumentsScored() + " of "
+                        + index.getDocumentNames().size() + ".");
+                System.out.println("Postings read: " + query.getPostingsScanned() + " of " + query.getPostingsTotal() + ".");
+            }
+
+            return top;
+        }
+
+        ArrayList<Pair<String, Double>> top = query.impactSimilarities(number);
+
+        if (impactIndex == 1) {
+            ArrayList<Pair<String, Double>> exact = query.similarities();
+            System.out.println("Overlap with the exact cosine top " + number + ": "
+                    + String.format("%.1f", Query.overlap(top, exact, number) * 100) + "%.");
+            System.out.println("Postings read: " + query.getPostingsScanned() + " of " + query.getPostingsTotal() + ".");
+        }
+
+        return top;
+    }
+
+    /**
+     * Checks if the Index still has the exact Postings of the words needed by a search, printing a message if
+     * they were removed when building the ImpactIndex.
+     *
+     * @param index  the Index of the documents's collection.
+     * @param search the search that needs the exact Postings.
+     * @return true if the search can be evaluated.
+     */
+    private static boolean hasExactPostings(Index index, String search) {
+
+        if (index.isImpactOnly()) {
+            System.out.println("The Index only has quantized impacts (ImpactIndex 2), " + search + " needs the exact postings.");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Calculates the similarity of all the documents for a query. If the query reads more postings than the
+     * parallel threshold (long queries, such as the ones expanded with the PSR), the document ids are split in
+     * ranges scored in parallel and only the relevant documents needed are returned.
+     *
+     * @param query  the query to search.
+     * @param number the number of relevant documents needed.
+     * @return an array with the relevant documents sorted highest to lowest (by similarity).
+     */
+    private static ArrayList<Pair<String, Double>> exhaustiveSearch(Query query, int number) {
+
+        if (parallelThreshold > 0 && query.getCost() >= parallelThreshold) {
+            return query.parallelSimilarities(number);
+        }
+
+        return query.similarities();
+    }
+
+    /**
+     * Searches a query and prints its relevant documents, before and after appling the PSR, and the suggestions
+     * for the query words that are not in the Index.
+     *
+     * @param index the Index of the documents's collection.
+     * @param line  the query to search.
+     * @param fast  true to evaluate the query with the champion lists.
+     */
+    private static void processQuery(Index index, String line, boolean fast) throws Exception {
+
+        Query query = new Query(index, line, maxExpansions, spellingCorrection == 2);
+        int number = Math.max(relevantDocumentsQuery, relevantDocumentsPSR);
+
+        if ((query.hasTitleWords() || titleBoost > 0.0) && !hasExactPostings(index, "the search in the titles")) {
+            return;
+        }
+
+        ArrayList<Pair<String, Double>> top = search(index, query, number, fast);
+
+        if (spellingCorrection != 0) {
+            for (Pair<String, String> suggestion : query.getSuggestions()) {
+                if (spellingCorrection == 2) {
+                    System.out.println("Corrected '" + suggestion.getFirst() + "' to '" + suggestion.getSecond() + "'.");
+                } else {
+                    System.out.println("Did you mean '" + suggestion.getSecond() + "' instead of '" + suggestion.getFirst() + "'?");
+                }
+            }
+        }
+
+        printQueriesInfo(top, index, query.getQuery(), relevantDocumentsQuery);
+
+        if (!top.isEmpty()) {
+
+            System.out.println("-------------------------------------------------------------------");
+            System.out.println("Relevant documents after appling PSR: ");
+            System.out.println("-------------------------------------------------------------------");
+            Query queryPSR = new Query(index, Query.feedbackText(index, line, query, top, relevantDocumentsPSR,
+                    topWordsPSR), maxExpansions);
+            top = search(index, queryPSR, number, fast);
+
+            printQueriesInfo(top, index, queryPSR.getQuery(), relevantDocumentsQuery);
+        }
+    }
+
+    /**
+     * Searches a query streaming its results: the provisional top documents are printed (only their names and
+     * similarities) as soon as they are available, and the information of the final ones, with the sentences
+     * that contain the query words, when all the postings have been read.
+     *
+     * @param index the Index of the documents's collection.
+     * @param line  the query to search.
+     */
+    private static void streamQuery(Index index, String line) throws Exception {
+
+        if (!hasExactPostings(index, "a streamed query")) {
+            return;
+        }
+
+        Query query = new Query(index, line, maxExpansions, spellingCorrection == 2);
+        query.setKernel(new ScoringKernel(scoringKernel));
+        query.setTitleBoost(titleBoost);
+        long start = System.nanoTime();
+
+        query.stream(relevantDocumentsQuery, (top, read, total) -> {
+
+            long elapsed = (System.nanoTime() - start) / 1000;
+
+            if (read < total) {
+                StringBuilder sb = new StringBuilder();
+                for (Pair<String, Double> result : top) {
+                    sb.append(sb.length() == 0 ? "" : ", ").append(result.getFirst())
+                            .append(" (").append(String.format("%.4f", result.getSecond())).append(")");
+                }
+                System.out.println("Provisional top after " + read + " of " + total + " postings (" + elapsed
+                        + " microseconds): " + sb + ".");
+            } else {
+                System.out.println("Final top after " + elapsed + " microseconds.");
+                printQueriesInfo(top, index, query.getQuery(), relevantDocumentsQuery);
+            }
+        });
+    }
+
+    /**
+     * Searches the documents similar to a document of the Index with its top weighted words and prints them.
+     *
+     * @param index    the Index of the documents's collection.
+     * @param document the name of the document.
+     */
+    private static void moreLikeThis(Index index, String document) {
+
+        Integer id = index.getDocumentId(document);
+
+        if (index.getForwardIndex() == null) {
+            System.out.println("The Index has no forward index.");
+        } else if (id == null) {
+            System.out.println("Document not found.");
+        } else if (hasExactPostings(index, "a search of similar documents")) {
+            Query query = new Query(index, id);
+            query.setKernel(new ScoringKernel(scoringKernel));
+            printQueriesInfo(query.similarities(), index, query.getQuery(), relevantDocumentsQuery);
+        }
+    }
+
+    /**
+     * Searches a page of the results of a query and prints it, saving the cursor of the next page and the
+     * generation of the Index it belongs to.
+     *
+     * @param generation the generation of the Index of the documents's collection.
+     * @param line       the query to search.
+     * @param cursor     the cursor of the page or null for the first page.
+     */
+    private static void printPage(IndexGeneration generation, String line, String cursor) throws Exception {
+
+        Index index = generation.getIndex();
+
+        if (!hasExactPostings(index, "a search by pages")) {
+            return;
+        }
+
+        Query query = new Query(index, line, maxExpansions, spellingCorrection == 2);
+        query.setKernel(new ScoringKernel(scoringKernel));
+        query.setTitleBoost(titleBoost);
+        ArrayList<Pair<String, Double>> page = query.page(cursor, relevantDocumentsQuery);
+
+        if (cursor == null) {
+            pageOffset = 0;
+        }
+
+        printQueriesInfo(page, index, query.getQuery(), relevantDocumentsQuery, pageOffset);
+
+        pageQuery = line;
+        pageCursor = query.getCursor();
+        pageGeneration = generation.getName();
+        pageOffset += page.size();
+
+        if (pageCursor != null) {
+            System.out.println("Enter ':next' for the next page.");
+        }
+    }
+
+    /**
+     * Prints the best completions of a prefix and the time needed to find them.
+     *
+     * @param index  the Index of the documents's collection.
+     * @param prefix the prefix typed, already cleaned.
+     */
+    private static void complete(Index index, String prefix) {
+
+        if (index.getCompletions() == null) {
+            System.out.println("The Index has no completions.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        ArrayList<Pair<String, Integer>> completions = index.getCompletions().complete(prefix);
+        long end = System.nanoTime();
+
+        for (Pair<String, Integer> completion : completions) {
+            System.out.println(completion.getFirst() + " (" + completion.getSecond() + " documents).");
+        }
+
+        System.out.println(completions.size() + " completions in " + String.format("%.1f", (end - start) / 1000.0) + " microseconds.");
+    }
+
     public static void main(String[] args) throws Exception {
 
         loadParameters();
 
         if (programMode == 0) {
 
+            HeapSampler heap = new HeapSampler(HEAP_SAMPLE_INTERVAL);
             File file = new File("results");
             file.mkdir();
             File file2 = new File("stopper");
@@ -144,109 +569,249 @@ public class Main {
             File file4 = new File("index");
             file4.mkdir();
 
-            Utils util = new Utils();
-            int totalTokens = 0;
+            Utils util = new Utils(statisticsCapacity);
+
+            if (completionSize > 0 || spellingCorrection != 0) {
+                util.setCompletionCounting();
+            }
+
+            BuildCheckpoint checkpoint = checkpointInterval > 0 ? BuildCheckpoint.load(CHECKPOINT_PATH) : null;
+
+            if (checkpoint != null) {
+                util = checkpoint.getUtils();
+                System.out.println("Resuming the build at stage " + checkpoint.getStage() + " with "
+                        + checkpoint.getProcessed() + " files already processed.");
+            } else {
+                checkpoint = new BuildCheckpoint(util);
+            }
+
+            int totalTokens = checkpoint.getTotalTokens();
             ArrayList<Pair<String, Double>> topWords;
             File collection = new File(collectionPath);
-            File[] listOfFiles = collection.listFiles();
+            int numberOfFiles = checkpoint.getNumberOfFiles();
 
             long time_start, time_end;
             time_start = System.currentTimeMillis();
 
-            if (listOfFiles != null) {
+            if (collection.isDirectory()) {
 
-                for (File listOfFile : listOfFiles) {
-                    totalTokens += util.extractTokens(listOfFile);
-                    util.setDocumentInfo(listOfFile);
-                }
+                if (checkpoint.getStage() == 1) {
 
-                topWords = util.getTopWords();
-                System.out.println(listOfFiles.length + " files processed.");
-                System.out.println("Total number of tokens: " + totalTokens + ".");
-                System.out.println("Token average per file: " + totalTokens / listOfFiles.length + ".");
-                System.out.println("Maximum tokens: " + util.getMaxFrequency().getSecond() + ".");
-                System.out.println("Minimum tokens: " + util.getMinFrequency().getSecond() + ".");
+                    try (CollectionReader reader = new CollectionReader(collection.toPath(), readAhead)) {
 
-                System.out.println();
-                System.out.println("Top 5 words before clean Stop Words: ");
+                        Pair<File, ByteBuffer> content;
 
-                for (int i = 0; i < 5; ++i) {
-                    System.out.println(topWords.get(i).getFirst() + ": " + String.format("%.0f", topWords.get(i).getSecond()) + " times.");
-                }
+                        while ((content = reader.next()) != null) {
 
-                util.resetMaxMin();
-                System.out.println();
-                File folder2 = new File("results");
-                File[] listOfFiles2 = folder2.listFiles();
-                totalTokens = 0;
+                            if (checkpoint.isProcessed(content.getFirst().getName())) {
+                                continue;
+                            }
+
+                            HtmlDocument document = null;
+
+                            try {
+                                document = util.parseDocument(reader.getContent(content), charset);
+                                util.setDocumentInfo(content.getFirst(), document);
+                                totalTokens += util.extractTokens(content.getFirst(), document);
+                                ++numberOfFiles;
+                            } catch (Exception e) {
+                                logError(content.getFirst(), e);
+                                new File("results\\" + FilenameUtils.removeExtension(content.getFirst().getName()) + ".txt").delete();
+
+                                if (document != null) {
+                                    util.removeDocumentInfo(content.getFirst(), document);
+                                }
+                            }
+
+                            if (checkpoint.process(content.getFirst().getName(), totalTokens, numberOfFiles, checkpointInterval)) {
+                                checkpoint.save(CHECKPOINT_PATH);
+                            }
+                        }
 
-                if (listOfFiles2 != null) {
-                    for (File aListOfFiles2 : listOfFiles2) {
-                        totalTokens += util.writeWithoutStopWords(aListOfFiles2);
+                        System.out.println(String.format("%.2f", reader.getBytesRead() / 1048576.0) + " MB read in "
+                                + String.format("%.3f", reader.getReadSeconds()) + " seconds of reading ("
+                                + String.format("%.3f", reader.getWaitSeconds()) + " seconds waiting for reads).");
+                    }
+
+                    topWords = util.getTopWords(5);
+                    System.out.println(numberOfFiles + " files processed.");
+                    System.out.println("Total number of tokens: " + totalTokens + ".");
+                    System.out.println("Token average per file: " + (numberOfFiles == 0 ? 0 : totalTokens / numberOfFiles) + ".");
+                    System.out.println("Maximum tokens: " + util.getMaxFrequency().getSecond() + ".");
+                    System.out.println("Minimum tokens: " + util.getMinFrequency().getSecond() + ".");
+
+                    System.out.println();
+                    System.out.println("Top 5 words before clean Stop Words: ");
+
+                    for (int i = 0; i < topWords.size(); ++i) {
+                        System.out.println(topWords.get(i).getFirst() + ": " + String.format("%.0f", topWords.get(i).getSecond()) + " times.");
+                    }
+
+                    System.out.println();
+                    util.resetMaxMin();
+                    checkpoint.startStage(2);
+                    totalTokens = 0;
+
+                    if (checkpointInterval > 0) {
+                        checkpoint.save(CHECKPOINT_PATH);
                     }
-                } else {
-                    System.err.println("Results directory not found");
-                    System.exit(1);
                 }
 
-                topWords = util.getTopWords();
-                System.out.println("Statistics after stopper: ");
-                System.out.println("Total number of tokens: " + totalTokens + ".");
-                System.out.println("Token average per file: " + totalTokens / listOfFiles.length + ".");
-                System.out.println("Maximum tokens: " + util.getMaxFrequency().getSecond() + ".");
-                System.out.println("Minimum tokens: " + util.getMinFrequency().getSecond() + ".");
+                if (checkpoint.getStage() == 2) {
+
+                    File folder2 = new File("results");
+                    File[] listOfFiles2 = folder2.listFiles();
+
+                    if (listOfFiles2 != null) {
+                        for (File aListOfFiles2 : listOfFiles2) {
+
+                            if (checkpoint.isProcessed(aListOfFiles2.getName())) {
+                                continue;
+                            }
+
+                            try {
+                                totalTokens += util.writeWithoutStopWords(aListOfFiles2);
+                            } catch (Exception e) {
+                                logError(aListOfFiles2, e);
+                                new File("stopper\\" + aListOfFiles2.getName()).delete();
+                                util.deleteDocument(FilenameUtils.removeExtension(aListOfFiles2.getName()) + ".html");
+                            }
+
+                            if (checkpoint.process(aListOfFiles2.getName(), totalTokens, numberOfFiles, checkpointInterval)) {
+                                checkpoint.save(CHECKPOINT_PATH);
+                            }
+                        }
+                    } else {
+                        System.err.println("Results directory not found");
+                        System.exit(1);
+                    }
 
-                System.out.println();
-                System.out.println("Top 5 words after clean Stop Words: ");
+                    topWords = util.getTopWords(5);
+                    System.out.println("Statistics after stopper: ");
+                    System.out.println("Total number of tokens: " + totalTokens + ".");
+                    System.out.println("Token average per file: " + (numberOfFiles == 0 ? 0 : totalTokens / numberOfFiles) + ".");
+                    System.out.println("Maximum tokens: " + util.getMaxFrequency().getSecond() + ".");
+                    System.out.println("Minimum tokens: " + util.getMinFrequency().getSecond() + ".");
 
-                for (int i = 0; i < 5; ++i) {
-                    System.out.println(topWords.get(i).getFirst() + ": " + String.format("%.0f", topWords.get(i).getSecond()) + " times.");
+                    System.out.println();
+                    System.out.println("Top 5 words after clean Stop Words: ");
+
+                    for (int i = 0; i < topWords.size(); ++i) {
+                        System.out.println(topWords.get(i).getFirst() + ": " + String.format("%.0f", topWords.get(i).getSecond()) + " times.");
+                    }
+
+                    System.out.println();
+
+                    if (duplicateMode != 0) {
+                        util.setDuplicateDetection(duplicateThreshold, duplicateMode == 2);
+                    }
+
+                    util.resetMaxMin();
+                    checkpoint.startStage(3);
+                    totalTokens = 0;
+
+                    if (checkpointInterval > 0) {
+                        checkpoint.save(CHECKPOINT_PATH);
+                    }
                 }
 
-                System.out.println();
                 File folder3 = new File("stopper");
                 File[] listOfFiles3 = folder3.listFiles();
-                totalTokens = 0;
-                util.resetMaxMin();
 
                 if (listOfFiles3 != null) {
                     for (File aListOfFiles3 : listOfFiles3) {
-                        totalTokens += util.writeStemWords(aListOfFiles3);
+
+                        if (checkpoint.isProcessed(aListOfFiles3.getName())) {
+                            continue;
+                        }
+
+                        try {
+                            totalTokens += util.writeStemWords(aListOfFiles3);
+                        } catch (Exception e) {
+                            logError(aListOfFiles3, e);
+                            new File("stemmer\\" + aListOfFiles3.getName()).delete();
+                            util.deleteDocument(FilenameUtils.removeExtension(aListOfFiles3.getName()) + ".html");
+                        }
+
+                        if (checkpoint.process(aListOfFiles3.getName(), totalTokens, numberOfFiles, checkpointInterval)) {
+                            checkpoint.save(CHECKPOINT_PATH);
+                        }
                     }
                 } else {
                     System.err.println("Stopper directory not found");
                     System.exit(1);
                 }
 
-                topWords = util.getTopWords();
+                topWords = util.getTopWords(5);
                 System.out.println("Statistics after stemmer: ");
                 System.out.println("Total number of tokens: " + totalTokens + ".");
-                System.out.println("Token average per file: " + totalTokens / listOfFiles.length + ".");
+                System.out.println("Token average per file: " + (numberOfFiles == 0 ? 0 : totalTokens / numberOfFiles) + ".");
                 System.out.println("Maximum tokens: " + util.getMaxFrequency().getSecond() + ".");
                 System.out.println("Minimum tokens: " + util.getMinFrequency().getSecond() + ".");
 
                 System.out.println();
                 System.out.println("Top 5 words after stemmer: ");
 
-                for (int i = 0; i < 5; ++i) {
+                for (int i = 0; i < topWords.size(); ++i) {
                     System.out.println(topWords.get(i).getFirst() + ": " + String.format("%.0f", topWords.get(i).getSecond()) + " times.");
                 }
 
                 System.out.println();
                 System.out.println("Statistics after Index: ");
                 System.out.println(util.getIndex().getTotalDocuments() + " documents processed.");
+
+                if (duplicateMode != 0) {
+                    System.out.println(util.getNumberOfDuplicates() + " near duplicate documents "
+                            + (duplicateMode == 1 ? "dropped." : "collapsed."));
+                }
+
                 System.out.println("There are " + util.getIndex().getNumberOfWords() + " different tokens.");
                 System.out.println("The most extensive document is '" + util.getMaxFrequency().getFirst() + "' with " + util.getMaxFrequency().getSecond() + " words.");
                 System.out.println("The less extensive document is '" + util.getMinFrequency().getFirst() + "' with " + util.getMinFrequency().getSecond() + " words.");
 
                 System.out.println();
+
+                double[] gapBits = null;
+                double nanosBefore = 0.0;
+
+                if (documentReordering != 0) {
+                    System.out.println("Reordering documents .... ");
+                    Index unordered = util.getIndex().snapshot();
+                    unordered.calculateWeights();
+                    nanosBefore = new KernelBenchmark(unordered, REORDERING_BENCHMARK_WORDS)
+                            .nanosPerPosting(scoringKernel, REORDERING_BENCHMARK_ITERATIONS);
+                    gapBits = util.getIndex().reorderDocuments();
+                }
+
                 System.out.println("Normalizing .... ");
-                util.getIndex().calculateWeights();
+                finishIndex(util.getIndex(), util.getSurfaceForms());
+
+                if (gapBits != null) {
+                    double nanosAfter = new KernelBenchmark(util.getIndex(), REORDERING_BENCHMARK_WORDS)
+                            .nanosPerPosting(scoringKernel, REORDERING_BENCHMARK_ITERATIONS);
+                    System.out.println("Document id gaps: " + String.format("%.2f", gapBits[0]) + " bits per posting before, "
+                            + String.format("%.2f", gapBits[1]) + " after (Elias gamma).");
+                    System.out.println("Scoring the " + REORDERING_BENCHMARK_WORDS + " longest postings lists: "
+                            + String.format("%.2f", nanosBefore) + " ns per posting before, "
+                            + String.format("%.2f", nanosAfter) + " after.");
+                }
+
                 System.out.println("Done.");
                 System.out.println("Saving index .... ");
                 saveIndex(util.getIndex());
+                BuildCheckpoint.delete(CHECKPOINT_PATH);
                 System.out.println("Done.");
 
+                if (numberOfErrors > 0) {
+                    System.out.println(numberOfErrors + " files skipped (see '" + ERROR_LOG_PATH + "').");
+                }
+                System.out.println();
+                System.out.println(util.getIndex().inspect());
+
+                System.out.println("Peak heap: " + heap.getPeak() / 1048576 + " MB (sampled every "
+                        + HEAP_SAMPLE_INTERVAL + " ms).");
+                heap.close();
+
                 time_end = System.currentTimeMillis();
                 System.out.println("The program has finished in " + (float) (time_end - time_start) / 1000.0 + " seconds.");
             } else {
@@ -254,50 +819,121 @@ public class Main {
                 System.exit(1);
             }
 
-        } else {
+        } else if (programMode == 2) {
 
-            long time_start, time_end;
-            time_start = System.currentTimeMillis();
+            System.out.println("Loading Index...");
+            IndexManager manager = loadIndex(indexPath);
+            System.out.println("Done.");
+            System.out.println();
+
+            IndexGeneration generation = manager.acquire();
+
+            try {
+                System.out.println(new KernelBenchmark(generation.getIndex(), 32).run(2000));
+            } finally {
+                generation.release();
+            }
+
+            manager.close();
+
+        } else if (programMode == 3) {
+
+            new ScalingHarness(scalingSizes, scalingDocumentLength, scalingQueries, maxExpansions, new File("scaling")).run();
+
+        } else if (programMode == 4) {
 
             System.out.println("Loading Index...");
-            Index index = loadIndex(indexPath);
+            IndexManager manager = loadIndex(indexPath);
             System.out.println("Done.");
             System.out.println();
-            String line;
-            Scanner scan = new Scanner(System.in);
 
-            System.out.println("Enter your query: ");
-            line = scan.nextLine();
+            IndexGeneration generation = manager.acquire();
 
-            do {
+            try {
+                System.out.println(new RelevanceEvaluation(generation.getIndex(), evaluationQueries, evaluationQrels,
+                        evaluationDepth, maxExpansions, scoringKernel, clusterProbes, relevantDocumentsPSR,
+                        topWordsPSR).run());
+            } finally {
+                generation.release();
+            }
 
+            manager.close();
 
-                Query query = new Query(index, line);
-                ArrayList<Pair<String, Double>> top = query.similarities();
+        } else if (programMode == 5) {
 
-                printQueriesInfo(top, index, query.getQuery(), relevantDocumentsQuery);
+            new File("results").mkdir();
+            new File("stopper").mkdir();
+            new File("stemmer").mkdir();
+            new File("index").mkdir();
 
-                if (!top.isEmpty()) {
+            Utils util = new Utils(statisticsCapacity);
 
-                    System.out.println("-------------------------------------------------------------------");
-                    System.out.println("Relevant documents after appling PSR: ");
-                    System.out.println("-------------------------------------------------------------------");
-                    StringBuilder sb = new StringBuilder();
-                    sb.append(line);
-                    sb.append(" ");
-                    ArrayList<String> usedWords = new ArrayList<>();
+            if (completionSize > 0 || spellingCorrection != 0) {
+                util.setCompletionCounting();
+                util.setDocumentCompletionCounting();
+            }
 
-                    usedWords.addAll(Arrays.asList(query.getQuery()));
+            System.out.println("Watching '" + collectionPath + "' (a new generation every " + ingestRefreshInterval
+                    + " seconds at most) ....");
+            System.out.println();
 
-                    for (int i = 0; i < relevantDocumentsPSR; ++i) {
+            new IngestDaemon(util, Paths.get(collectionPath), indexPath, INGEST_METRICS_PATH, charset,
+                    ingestRefreshInterval, index -> {
+                if (documentReordering != 0) {
+                    index.reorderDocuments();
+                }
+                finishIndex(index, util.getSurfaceForms());
+            }).run();
 
-                        sb.append(index.getTopWords(top.get(i).getFirst(), topWordsPSR, usedWords));
-                    }
+        } else {
 
-                    Query queryPSR = new Query(index, sb.toString());
-                    top = queryPSR.similarities();
+            long time_start, time_end;
+            time_start = System.currentTimeMillis();
 
-                    printQueriesInfo(top, index, queryPSR.getQuery(), relevantDocumentsQuery);
+            System.out.println("Loading Index...");
+            IndexManager manager = loadIndex(indexPath);
+            System.out.println("Done.");
+            System.out.println();
+            String line;
+            Scanner scan = new Scanner(System.in);
+
+            System.out.println("Enter your query (':stats' for the footprint of the Index, ':fast <query>' for a fast search, "
+                    + "':like <document>' for similar documents, ':complete <prefix>' for completions, "
+                    + "':page <query>' and ':next' for the results by pages, ':stream <query>' for the results "
+                    + "as they are scored, 'title:<word>' to search a word only in the titles): ");
+            line = scan.nextLine();
+
+            do {
+
+                IndexGeneration generation = manager.acquire();
+
+                try {
+                    if (line.equals(":stats")) {
+                        System.out.println(generation.getIndex().inspect());
+                    } else if (line.startsWith(":page ")) {
+                        printPage(generation, line.substring(":page ".length()), null);
+                    } else if (line.equals(":next")) {
+                        if (pageCursor == null) {
+                            System.out.println("There are no more pages.");
+                        } else if (!generation.getName().equals(pageGeneration)) {
+                            System.out.println("The Index has changed since the previous page, the results start again.");
+                            printPage(generation, pageQuery, null);
+                        } else {
+                            printPage(generation, pageQuery, pageCursor);
+                        }
+                    } else if (line.startsWith(":complete ")) {
+                        complete(generation.getIndex(), new Utils().cleanText(line.substring(":complete ".length())).trim());
+                    } else if (line.startsWith(":like ")) {
+                        moreLikeThis(generation.getIndex(), line.substring(":like ".length()));
+                    } else if (line.startsWith(":stream ")) {
+                        streamQuery(generation.getIndex(), line.substring(":stream ".length()));
+                    } else if (line.startsWith(":fast ")) {
+                        processQuery(generation.getIndex(), line.substring(":fast ".length()), true);
+                    } else {
+                        processQuery(generation.getIndex(), line, false);
+                    }
+                } finally {
+                    generation.release();
                 }
 
                 System.out.println();
@@ -306,6 +942,8 @@ public class Main {
 
             } while (!line.equals("exit"));
 
+            manager.close();
+
             time_end = System.currentTimeMillis();
             System.out.println("The program has finished in " + (float) (time_end - time_start) / 1000.0 + " seconds.");
         }
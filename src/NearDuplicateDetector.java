@@ -0,0 +1,150 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+class NearDuplicateDetector implements Serializable {
+
+    private static final int SHINGLE = 3;
+    private static final int BANDS = 16;
+    private static final int ROWS = 8;
+
+    private double threshold;
+    private ArrayList<String> names;
+    private ArrayList<long[]> signatures;
+    private HashMap<Long, ArrayList<Integer>> buckets;
+
+    /**
+     * Creates a new NearDuplicateDetector object that finds the documents whose shingles (sequences of 3
+     * stem words) are almost the same as the ones of a document seen before:
+     * <p>
+     * 1- Threshold: the minimum estimated Jaccard similarity between two documents to be near duplicates.
+     * 2- Names and Signatures: the MinHash signature (128 values) of each original document.
+     * 3- Buckets: the LSH buckets. The signature is split into 16 bands of 8 values and each band is hashed to
+     * a bucket, so only the documents that share a bucket are compared.
+     *
+     * @param threshold the minimum estimated Jaccard similarity between near duplicates.
+     */
+    NearDuplicateDetector(double threshold) {
+
+        this.threshold = threshold;
+        names = new ArrayList<>();
+        signatures = new ArrayList<>();
+        buckets = new HashMap<>();
+    }
+
+    /**
+     * Searches a document among the original documents seen before. If it is not a near duplicate of any of
+     * them, it is saved as a new original document.
+     *
+     * @param document the name of the document.
+     * @param words    the stem words of the document.
+     * @return the name of the original document or null if the document is not a near duplicate.
+     */
+    String findDuplicate(String document, String[] words) {
+
+        long[] signature = signature(words);
+        long[] keys = new long[BANDS];
+        HashSet<Integer> candidates = new HashSet<>();
+
+        for (int band = 0; band < BANDS; ++band) {
+            long key = band;
+            for (int row = 0; row < ROWS; ++row) {
+                key = mix(key * 31 + signature[band * ROWS + row]);
+            }
+            keys[band] = key;
+
+            ArrayList<Integer> bucket = buckets.get(key);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        int best = -1;
+        double bestSimilarity = threshold;
+
+        for (int candidate : candidates) {
+            double similarity = similarity(signature, signatures.get(candidate));
+            if (similarity >= bestSimilarity) {
+                best = candidate;
+                bestSimilarity = similarity;
+            }
+        }
+
+        if (best != -1) {
+            return names.get(best);
+        }
+
+        for (long key : keys) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(names.size());
+        }
+
+        names.add(document);
+        signatures.add(signature);
+
+        return null;
+    }
+
+    /**
+     * Calculates the MinHash signature of a document: for each of the hash functions, the minimum hash of the
+     * shingles of the document.
+     *
+     * @param words the stem words of the document.
+     * @return the signature of the document.
+     */
+    private static long[] signature(String[] words) {
+
+        long[] signature = new long[BANDS * ROWS];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        int shingles = Math.max(1, words.length - SHINGLE + 1);
+
+        for (int i = 0; i < shingles; ++i) {
+            long shingle = 0;
+            for (int j = i; j < i + SHINGLE && j < words.length; ++j) {
+                shingle = shingle * 1000003 + words[j].hashCode();
+            }
+
+            for (int k = 0; k < signature.length; ++k) {
+                long hash = mix(shingle ^ (0x9E3779B97F4A7C15L * (k + 1)));
+                if (hash < signature[k]) {
+                    signature[k] = hash;
+                }
+            }
+        }
+
+        return signature;
+    }
+
+    /**
+     * @return The fraction of equal values of two signatures, an estimation of the Jaccard similarity of the
+     * shingles of both documents.
+     */
+    private static double similarity(long[] a, long[] b) {
+
+        int equal = 0;
+
+        for (int i = 0; i < a.length; ++i) {
+            if (a[i] == b[i]) {
+                ++equal;
+            }
+        }
+
+        return (double) equal / a.length;
+    }
+
+    /**
+     * @return The value with its bits mixed (finalizer of MurmurHash3).
+     */
+    private static long mix(long value) {
+
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe1a85b53L;
+        value ^= value >>> 33;
+
+        return value;
+    }
+
+}
@@ -0,0 +1,44 @@
+import java.io.Serializable;
+
+class Postings implements Serializable {
+
+    private int[] documents;
+    private double[] weights;
+
+    /**
+     * Creates a new Postings object with the documents that contain a word sorted by id:
+     * <p>
+     * 1- Documents: the ids of the documents.
+     * 2- Weights: the wn value of the word in each document.
+     *
+     * @param documents the ids of the documents.
+     * @param weights   the weights of the word in the documents.
+     */
+    Postings(int[] documents, double[] weights) {
+
+        this.documents = documents;
+        this.weights = weights;
+    }
+
+    /**
+     * @return The number of documents that contain the word.
+     */
+    int size() {
+        return documents.length;
+    }
+
+    /**
+     * @return The ids of the documents that contain the word, sorted lowest to highest.
+     */
+    int[] getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return The weight of the word in each document.
+     */
+    double[] getWeights() {
+        return weights;
+    }
+
+}
@@ -1,11 +1,20 @@
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 class Query {
 
+    private static final int MIN_RANGE = 4096;
+
     private ArrayList<Pair<String, Double>> results;
-    private ArrayList<Pair<String, Double>> query;
+    private ArrayList<Pair<String, Double>> query, titleQuery, boostedTitleQuery;
     private Index index;
+    private int postingsScanned, postingsTotal, documentsScored, candidatePostings, excluded;
+    private ScoringKernel kernel;
+    private ArrayList<Pair<String, String>> suggestions;
+    private HashMap<String, String> typedWords;
+    private String nextCursor;
+    private double titleBoost;
 
     /**
      * Creates a new Query object with:
@@ -13,75 +22,332 @@ class Query {
      * 1- Results: An ArrayList<Pair<String, Double>> with:
      * First: the name of the document.
      * Second: the similarity of that document with the query.
-     * 2- Query: An ArrayList<Pair<String, Double>> with the words of the query:
+     * 2- Query: An ArrayList<Pair<String, Double>> with the words of the query searched in the text:
      * First: the word (stem word).
      * Second: the word's frequency.
      * 3- Index: the Index of the documents's collection.
+     * 4- Kernel: the ScoringKernel of the exact similarities (SCALAR unless it is changed).
+     * 5- TitleQuery: the words of the query written as 'title:word', that are only searched in the titles,
+     * weighted with the idf of the title field. A word written with and without 'title:' is a different word
+     * in each field.
+     * 5b- BoostedTitleQuery: the words of TitleQuery and Query together, searched in the titles when the title
+     * boost is greater than 0.
+     * 6- TitleBoost: the weight of the similarity of the titles added to the similarity of the text (0 unless
+     * it is changed: the words without 'title:' are only searched in the text).
+     * 7- TypedWords: the first word of the query written for each stem word, to show the suggestions.
+     * <p>
+     * The words of the query written as 'prefix*', with '*' and '?' wildcards or as 'word~1' / 'word~2' are
+     * expanded with the words of the Index dictionary and scored together with the rest of the query.
+     *
+     * @param index         the Index of the documents's collection.
+     * @param query         the text of the query.
+     * @param maxExpansions the maximum number of words a prefix, wildcard or fuzzy word is expanded to.
+     */
+    Query(Index index, String query, int maxExpansions) throws Exception {
+        this(index, query, maxExpansions, false);
+    }
+
+    /**
+     * Creates a new Query object like Query(index, query, maxExpansions) that also searches, if the Index has a
+     * k-gram index, the closest word of the Index for each query word that is not in the Index.
+     *
+     * @param index         the Index of the documents's collection.
+     * @param query         the text of the query.
+     * @param maxExpansions the maximum number of words a prefix, wildcard or fuzzy word is expanded to.
+     * @param correct       true to replace the words that are not in the Index with their suggestion.
      */
-    Query(Index index, String query) throws Exception {
+    Query(Index index, String query, int maxExpansions, boolean correct) throws Exception {
 
         Utils util = new Utils();
         String[] words;
         this.index = index;
+        kernel = new ScoringKernel(ScoringKernel.SCALAR);
+        excluded = -1;
 
-        query = util.cleanText(query);
+        StringBuilder text = new StringBuilder();
+        StringBuilder title = new StringBuilder();
+        ArrayList<String> expansions = new ArrayList<>();
+
+        for (String token : query.split("\\s+")) {
+            if (token.startsWith("title:")) {
+                title.append(token.substring("title:".length()));
+                title.append(" ");
+            } else if (token.indexOf('*') != -1 || token.indexOf('?') != -1 || token.indexOf('~') != -1) {
+                expansions.add(token);
+            } else {
+                text.append(token);
+                text.append(" ");
+            }
+        }
+
+        query = util.cleanText(text.toString());
         words = util.removeStopWords(query);
-        util.stemmer(words);
+        typedWords = new HashMap<>();
+        stem(util, words);
 
         this.query = new ArrayList<>();
-        addQueryWords(words);
-        normalizeFrequencies();
+        StringIntMap positions = new StringIntMap(words.length);
+        addQueryWords(this.query, words, positions);
+
+        words = util.removeStopWords(util.cleanText(title.toString()));
+        stem(util, words);
+        titleQuery = new ArrayList<>();
+        StringIntMap titlePositions = new StringIntMap(words.length);
+
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                addQueryWord(titleQuery, word, 1.0, titlePositions);
+            }
+        }
+
+        for (String token : expansions) {
+            addExpandedWords(expand(util, token, maxExpansions), positions);
+        }
+
+        suggest(correct, this.query);
+        suggest(correct, titleQuery);
+
+        boostedTitleQuery = new ArrayList<>();
+        StringIntMap boostedPositions = new StringIntMap(titleQuery.size() + this.query.size());
+
+        for (Pair<String, Double> element : titleQuery) {
+            addQueryWord(boostedTitleQuery, element.getFirst(), element.getSecond(), boostedPositions);
+        }
+
+        for (Pair<String, Double> element : this.query) {
+            addQueryWord(boostedTitleQuery, element.getFirst(), element.getSecond(), boostedPositions);
+        }
+
+        normalizeFrequencies(this.query, false);
+        normalizeFrequencies(titleQuery, true);
+        normalizeFrequencies(boostedTitleQuery, true);
         results = new ArrayList<>();
     }
 
     /**
-     * Saves all the words of a query (without repeating) with their frequency.
+     * Creates a new Query object with the top weighted words of a document of the ForwardIndex, to search the
+     * documents similar to it. The words keep their weight in the document and the document itself is excluded
+     * from the results of similarities().
      *
-     * @param words the words of the query.
+     * @param index    the Index of the documents's collection (with a ForwardIndex).
+     * @param document the id of the document.
      */
-    private void addQueryWords(String[] words) {
+    Query(Index index, int document) {
 
-        boolean found;
+        ForwardIndex forwardIndex = index.getForwardIndex();
+        int[] terms = forwardIndex.getTerms(document);
+        double[] weights = forwardIndex.getWeights(document);
 
-        for (String word : words) {
-            found = false;
+        this.index = index;
+        kernel = new ScoringKernel(ScoringKernel.SCALAR);
+        excluded = document;
+        suggestions = new ArrayList<>();
+        titleQuery = new ArrayList<>();
+        boostedTitleQuery = new ArrayList<>();
+        query = new ArrayList<>();
 
-            for (Pair<String, Double> element : query) {
-                if (element.getFirst().equals(word)) {
-                    element.setSecond(element.getSecond() + 1.0);
-                    found = true;
-                }
+        for (int i = 0; i < terms.length; ++i) {
+            query.add(new Pair<>(index.getDictionary().get(terms[i]), weights[i]));
+        }
+
+        results = new ArrayList<>();
+    }
+
+    /**
+     * Stems the words of the query, keeping the first word written for each stem word to show the suggestions.
+     *
+     * @param util  the Utils object used to stem the words.
+     * @param words the words of the query, replaced by their stem words.
+     */
+    private void stem(Utils util, String[] words) throws Exception {
+
+        String[] typed = words.clone();
+        util.stemmer(words);
+
+        for (int i = 0; i < words.length; ++i) {
+            typedWords.putIfAbsent(words[i], typed[i]);
+        }
+    }
+
+    /**
+     * Expands a prefix, wildcard or fuzzy word of the query with the words of the Index dictionary.
+     * <p>
+     * Fuzzy words are stemmed before the search. Prefixes and wildcards are matched directly against the stem
+     * words, since the stem of a truncated word is not meaningful.
+     *
+     * @param util          the Utils object used to clean and stem the word.
+     * @param token         the word of the query with its operators.
+     * @param maxExpansions the maximum number of words that will be returned.
+     * @return an array with the words of the dictionary the word is expanded to.
+     */
+    private ArrayList<String> expand(Utils util, String token, int maxExpansions) throws Exception {
+
+        TermDictionary dictionary = index.getDictionary();
+        int tilde = token.lastIndexOf('~');
+
+        if (tilde != -1) {
+            String suffix = token.substring(tilde + 1);
+            int maxEdits = suffix.equals("1") ? 1 : 2;
+            String[] words = {util.cleanText(token.substring(0, tilde)).replaceAll("\\s+", "")};
+
+            if (words[0].isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            util.stemmer(words);
+            return dictionary.expandFuzzy(words[0], maxEdits, maxExpansions);
+        }
+
+        StringBuilder pattern = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (char character : token.toCharArray()) {
+            if (character == '*' || character == '?') {
+                pattern.append(util.cleanText(literal.toString()).replaceAll("\\s+", ""));
+                pattern.append(character);
+                literal.setLength(0);
+            } else {
+                literal.append(character);
             }
+        }
+
+        pattern.append(util.cleanText(literal.toString()).replaceAll("\\s+", ""));
+        int star = pattern.indexOf("*");
+
+        if (star == pattern.length() - 1 && pattern.indexOf("?") == -1) {
+            return dictionary.expandPrefix(pattern.substring(0, star), maxExpansions);
+        }
+
+        return dictionary.expandWildcard(pattern.toString(), maxExpansions);
+    }
+
+    /**
+     * Saves the words a query word has been expanded to. The frequency of the query word is shared between all
+     * of them, so an expanded word weighs the same as any other word of the query.
+     *
+     * @param words     the words of the dictionary the query word has been expanded to.
+     * @param positions the position of each word in the query.
+     */
+    private void addExpandedWords(ArrayList<String> words, StringIntMap positions) {
+
+        for (String word : words) {
+            addQueryWord(query, word, 1.0 / words.size(), positions);
+        }
+    }
+
+    /**
+     * Saves all the words of a query (without repeating) with their frequency.
+     *
+     * @param terms     the words of the query in a field.
+     * @param words     the words of the query.
+     * @param positions the position of each word in the words of the field.
+     */
+    private void addQueryWords(ArrayList<Pair<String, Double>> terms, String[] words, StringIntMap positions) {
+
+        for (String word : words) {
+            addQueryWord(terms, word, 1.0, positions);
+        }
+    }
+
+    /**
+     * Adds a frequency to a word of the query, found with the map of the positions of the query words instead of
+     * scanning the query (the word is added at the end if it is new).
+     *
+     * @param terms     the words of the query in a field.
+     * @param word      the word.
+     * @param frequency the frequency added.
+     * @param positions the position of each word in the words of the field.
+     */
+    private static void addQueryWord(ArrayList<Pair<String, Double>> terms, String word, double frequency,
+                                     StringIntMap positions) {
 
-            if (!found) {
-                query.add(new Pair<>(word, 1.0));
+        int position = positions.get(word, -1);
+
+        if (position == -1) {
+            positions.put(word, terms.size());
+            terms.add(new Pair<>(word, frequency));
+        } else {
+            terms.get(position).setSecond(terms.get(position).getSecond() + frequency);
+        }
+    }
+
+    /**
+     * Searches a suggestion in the k-gram index of the Index for each query word of a field that is not in the
+     * Index. A word is only replaced if its suggestion is not already a word of the field. The suggestions are
+     * saved with the word as it was written and the most frequent word of the documents with the suggested stem.
+     *
+     * @param correct true to replace the words with their suggestion.
+     * @param terms   the words of the query in a field.
+     */
+    private void suggest(boolean correct, ArrayList<Pair<String, Double>> terms) {
+
+        if (suggestions == null) {
+            suggestions = new ArrayList<>();
+        }
+
+        if (index.getSpelling() == null) {
+            return;
+        }
+
+        HashSet<String> words = new HashSet<>();
+        for (Pair<String, Double> element : terms) {
+            words.add(element.getFirst());
+        }
+
+        for (Pair<String, Double> element : terms) {
+
+            if (index.get(element.getFirst()) == null) {
+
+                ArrayList<String> candidates = index.getSpelling().suggest(element.getFirst(), 1);
+
+                if (!candidates.isEmpty() && !words.contains(candidates.get(0))) {
+                    suggestions.add(new Pair<>(typedWords.getOrDefault(element.getFirst(), element.getFirst()),
+                            index.getSpelling().getSurfaceForm(candidates.get(0))));
+                    words.add(candidates.get(0));
+
+                    if (correct) {
+                        element.setFirst(candidates.get(0));
+                    }
+                }
             }
         }
     }
 
     /**
-     * Normalizes the frequencies of the words, dividing each frequency by the maximum word's frequency and calculates
-     * the weight of query's words.
+     * @return The query words that are not in the Index with their suggestion:
+     * First: the word of the query, as it was written (cleaned).
+     * Second: the closest word of the Index, as it is written in the documents.
      */
-    private void normalizeFrequencies() {
+    ArrayList<Pair<String, String>> getSuggestions() {
+        return suggestions;
+    }
+
+    /**
+     * Normalizes the frequencies of the words of a field, dividing each frequency by the maximum word's frequency
+     * and calculates the weight of query's words with the idf of that field.
+     *
+     * @param terms the words of the query in a field.
+     * @param title true if the words are searched in the titles.
+     */
+    private void normalizeFrequencies(ArrayList<Pair<String, Double>> terms, boolean title) {
 
         double max = -1;
 
-        for (Pair<String, Double> element : query) {
+        for (Pair<String, Double> element : terms) {
             if (element.getSecond() > max) {
                 max = element.getSecond();
             }
         }
 
-        for (Pair<String, Double> element : query) {
+        for (Pair<String, Double> element : terms) {
             element.setSecond(element.getSecond() / max);
         }
 
         double wniqSum = 0.0;
 
-        for (Pair<String, Double> element : query) {
-            if (index.get(element.getFirst()) != null) {
-                double idf = index.get(element.getFirst()).getFirst();
+        for (Pair<String, Double> element : terms) {
+            Double idf = idf(element.getFirst(), title);
+            if (idf != null) {
                 double wniq = element.getSecond() * idf;
                 wniqSum += wniq * wniq;
             }
@@ -91,15 +357,15 @@ class Query {
 
         if (wniqSum == 0) {
 
-            for (Pair<String, Double> element : query) {
+            for (Pair<String, Double> element : terms) {
                 element.setSecond(0.0);
             }
 
         } else {
 
-            for (Pair<String, Double> element : query) {
-                if (index.get(element.getFirst()) != null) {
-                    double idf = index.get(element.getFirst()).getFirst();
+            for (Pair<String, Double> element : terms) {
+                Double idf = idf(element.getFirst(), title);
+                if (idf != null) {
                     double wniq = (element.getSecond() * idf) / wniqSum;
                     element.setSecond(wniq);
                 }
@@ -107,6 +373,24 @@ class Query {
         }
     }
 
+    /**
+     * Returns the idf of a word in a field. The idf of the titles is not saved in the Index, but it is the same
+     * one the weights of the TitlePostings were calculated with: log10(documents / titles with the word).
+     *
+     * @param word  the word (stem word).
+     * @param title true for the idf of the titles, false for the idf of the text.
+     * @return the idf of the word in the field (null if the word is not in the field).
+     */
+    private Double idf(String word, boolean title) {
+
+        if (title) {
+            Postings postings = index.getTitlePostings(word);
+            return postings == null ? null : Math.log10((double) index.getDocumentNames().size() / postings.size());
+        }
+
+        return index.get(word) == null ? null : index.get(word).getFirst();
+    }
+
     /**
      * Calculates the similarity of the documents's collection for a query and returns an
      * ArrayList<Pair<String, Double>> sorted highest to lowest with:
@@ -114,6 +398,9 @@ class Query {
      * First: the name of the document.
      * Second: the similarity of that document with the query.
      * <p>
+     * The postings of each query word are added term-at-a-time to arrays indexed by document id with the
+     * ScoringKernel of the query.
+     * <p>
      * Note: If the document dosn't contain any of the query's word, the similarity will be 0.
      *
      * @return an array with all the relevant documents and their similarity with the query
@@ -121,58 +408,774 @@ class Query {
      */
     ArrayList<Pair<String, Double>> similarities() {
 
-        if (!query.isEmpty()) {
+        if (!query.isEmpty() || !titleQuery.isEmpty()) {
 
-            double wniqNorm = 0.0;
-            for (Pair<String, Double> element : query) {
+            ArrayList<String> documentNames = index.getDocumentNames();
+            double[] scores = scores();
+
+            for (int document = 0; document < scores.length; ++document) {
 
-                if (index.get(element.getFirst()) != null) {
-                    wniqNorm += element.getSecond() * element.getSecond();
+                if (scores[document] != 0.0) {
+                    results.add(new Pair<>(documentNames.get(document), scores[document]));
                 }
             }
-            wniqNorm = Math.sqrt(wniqNorm);
 
-            for (Map.Entry<String, DocumentInfo> document : index.getDocuments().entrySet()) {
-                double numerator = 0.0, wnijNorm = 0.0;
-                for (Pair<String, Double> element : query) {
+            QuickSort quickSort = new QuickSort();
+            quickSort.sort(results);
+        }
+
+        return results;
+    }
+
+    /**
+     * Calculates the similarity of every document with the query, adding the postings of each query word
+     * term-at-a-time with the ScoringKernel of the query. The words written as 'title:word' only read the
+     * postings of the titles.
+     *
+     * @return the similarity of each document indexed by document id (0 if the document doesn't contain any of
+     * the query's words or if it is the excluded document).
+     */
+    private double[] scores() {
+
+        double[] queryNorms = queryNorms();
+        double wniqNorm = queryNorms[0], titleNorm = queryNorms[1];
+        double[] numerators = new double[index.getDocumentNames().size()];
+        double[] norms = new double[index.getDocumentNames().size()];
+        double[] titleNumerators = null, titleNorms = null;
+
+        if (titleNorm > 0.0) {
+            titleNumerators = new double[numerators.length];
+            titleNorms = new double[numerators.length];
+        }
+
+        for (Pair<String, Double> element : query) {
+            Postings postings = index.getPostings(element.getFirst());
+            if (postings != null) {
+                kernel.accumulate(postings, element.getSecond(), numerators, norms);
+            }
+        }
+
+        for (Pair<String, Double> element : getTitleQuery()) {
+            Postings postings = index.getTitlePostings(element.getFirst());
+            if (postings != null) {
+                kernel.accumulate(postings, element.getSecond(), titleNumerators, titleNorms);
+            }
+        }
+
+        double boost = titleBoost > 0.0 ? titleBoost : 1.0;
+
+        for (int document = 0; document < numerators.length; ++document) {
+
+            double score = 0.0;
+
+            if (numerators[document] != 0.0) {
+                score = numerators[document] / (wniqNorm * Math.sqrt(norms[document]));
+            }
+
+            if (titleNumerators != null && titleNumerators[document] != 0.0) {
+                score += boost * titleNumerators[document] / (titleNorm * Math.sqrt(titleNorms[document]));
+            }
+
+            numerators[document] = document == excluded ? 0.0 : score;
+        }
+
+        return numerators;
+    }
+
+    /**
+     * @return An array with the norm of the query over the words searched in the text and over the words
+     * searched in the titles.
+     */
+    private double[] queryNorms() {
+
+        double wniqNorm = 0.0, titleNorm = 0.0;
+
+        for (Pair<String, Double> element : query) {
+            if (index.get(element.getFirst()) != null) {
+                wniqNorm += element.getSecond() * element.getSecond();
+            }
+        }
+
+        for (Pair<String, Double> element : getTitleQuery()) {
+            if (index.getTitlePostings(element.getFirst()) != null) {
+                titleNorm += element.getSecond() * element.getSecond();
+            }
+        }
+
+        return new double[]{Math.sqrt(wniqNorm), Math.sqrt(titleNorm)};
+    }
+
+    /**
+     * @return The number of postings read to calculate the similarities of all the documents, used to decide
+     * whether the query is scored in parallel.
+     */
+    long getCost() {
+
+        long cost = 0;
+
+        for (Pair<String, Double> element : query) {
+            Postings postings = index.getPostings(element.getFirst());
+            if (postings != null) {
+                cost += postings.size();
+            }
+        }
+
+        for (Pair<String, Double> element : getTitleQuery()) {
+            Postings postings = index.getTitlePostings(element.getFirst());
+            if (postings != null) {
+                cost += postings.size();
+            }
+        }
+
+        return cost;
+    }
+
+    /**
+     * Calculates the same similarities as similarities() but splits the document ids into ranges that are
+     * scored in parallel as ForkJoin tasks, each one with its own top documents, and merges them. Returns an
+     * ArrayList<Pair<String, Double>> sorted highest to lowest with:
+     * <p>
+     * First: the name of the document.
+     * Second: the similarity of that document with the query.
+     * <p>
+     * There are about four ranges per thread of the common pool, so the tasks are balanced when some ranges
+     * have more postings than others.
+     *
+     * @param number the number of relevant documents needed.
+     * @return an array with the top documents and their similarity with the query sorted highest to lowest.
+     */
+    ArrayList<Pair<String, Double>> parallelSimilarities(int number) {
+
+        if (query.isEmpty() && titleQuery.isEmpty()) {
+            return results;
+        }
+
+        ArrayList<Postings> bodyPostings = new ArrayList<>(), titlePostings = new ArrayList<>();
+        ArrayList<Double> bodyWeights = new ArrayList<>(), titleWeights = new ArrayList<>();
+
+        for (Pair<String, Double> element : query) {
+            Postings postings = index.getPostings(element.getFirst());
+            if (postings != null) {
+                bodyPostings.add(postings);
+                bodyWeights.add(element.getSecond());
+            }
+        }
+
+        for (Pair<String, Double> element : getTitleQuery()) {
+            Postings postings = index.getTitlePostings(element.getFirst());
+            if (postings != null) {
+                titlePostings.add(postings);
+                titleWeights.add(element.getSecond());
+            }
+        }
+
+        double[] queryNorms = queryNorms();
+        int documents = index.getDocumentNames().size();
+        int grain = Math.max(MIN_RANGE, documents / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+
+        ArrayList<Pair<Integer, Double>> top = ForkJoinPool.commonPool().invoke(new RangeScorer(
+                bodyPostings.toArray(new Postings[0]), bodyWeights.stream().mapToDouble(Double::doubleValue).toArray(),
+                titlePostings.toArray(new Postings[0]), titleWeights.stream().mapToDouble(Double::doubleValue).toArray(),
+                queryNorms[0], queryNorms[1], titleBoost > 0.0 ? titleBoost : 1.0, excluded, kernel.getMode(), number,
+                0, documents, grain));
+
+        for (Pair<Integer, Double> result : top) {
+            results.add(new Pair<>(index.getDocumentNames().get(result.getFirst()), result.getSecond()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Scores the query term-at-a-time and sends its top documents to a listener while it is being scored, so
+     * the first results are available before all the postings are read. The words are read from the most to
+     * the least important (query weight by idf) and an update is sent after the first word and every time the
+     * postings read double, with the similarities calculated over the words read. The last update has the
+     * exact top documents. The queries with words in the titles (or a title boost) are scored at once with
+     * similarities() and sent in a single update.
+     *
+     * @param number   the number of relevant documents needed.
+     * @param listener the listener of the updates.
+     */
+    void stream(int number, ResultListener listener) {
+
+        if (hasTitleWords() || titleBoost > 0.0) {
+            ArrayList<Pair<String, Double>> all = similarities();
+            long cost = getCost();
+            listener.update(new ArrayList<>(all.subList(0, Math.min(number, all.size()))), cost, cost);
+            return;
+        }
+
+        ArrayList<Pair<Integer, Double>> words = new ArrayList<>();
+        long total = 0;
+
+        for (int i = 0; i < query.size(); ++i) {
+            Postings postings = index.getPostings(query.get(i).getFirst());
+            if (postings != null) {
+                words.add(new Pair<>(i, query.get(i).getSecond() * index.get(query.get(i).getFirst()).getFirst()));
+                total += postings.size();
+            }
+        }
+
+        words.sort((a, b) -> Double.compare(b.getSecond(), a.getSecond()));
+
+        double wniqNorm = queryNorms()[0];
+        double[] numerators = new double[index.getDocumentNames().size()];
+        double[] norms = new double[numerators.length];
+        long read = 0, next = 0;
+
+        if (words.isEmpty()) {
+            listener.update(new ArrayList<>(), 0, 0);
+        }
+
+        for (int i = 0; i < words.size(); ++i) {
 
-                    if (index.get(element.getFirst()) != null) {
+            Pair<String, Double> element = query.get(words.get(i).getFirst());
+            Postings postings = index.getPostings(element.getFirst());
+            kernel.accumulate(postings, element.getSecond(), numerators, norms);
+            read += postings.size();
 
-                        if (index.get(element.getFirst()).getSecond().get(document.getKey()) != null) {
-                            double wnij = index.get(element.getFirst()).getSecond().get(document.getKey());
-                            numerator += element.getSecond() * wnij;
-                            wnijNorm += wnij * wnij;
-                        }
+            if (read >= next || i == words.size() - 1) {
+                listener.update(top(numerators, norms, wniqNorm, number), read, total);
+                next = 2 * read;
+            }
+        }
+    }
+
+    /**
+     * Selects the top documents of partial similarities with a bounded heap.
+     *
+     * @param numerators the numerator of the similarity of each document.
+     * @param norms      the squared norm of each document over the words read.
+     * @param queryNorm  the norm of the query.
+     * @param number     the number of top documents.
+     * @return an array with the top documents sorted highest to lowest by similarity (and lowest to highest by
+     * document id when the similarity is the same).
+     */
+    private ArrayList<Pair<String, Double>> top(double[] numerators, double[] norms, double queryNorm, int number) {
+
+        Comparator<Pair<Integer, Double>> order = (a, b) -> a.getSecond().equals(b.getSecond())
+                ? Integer.compare(a.getFirst(), b.getFirst()) : Double.compare(b.getSecond(), a.getSecond());
+        PriorityQueue<Pair<Integer, Double>> heap = new PriorityQueue<>(order.reversed());
+
+        for (int document = 0; document < numerators.length; ++document) {
+
+            if (numerators[document] == 0.0 || document == excluded) {
+                continue;
+            }
+
+            Pair<Integer, Double> result = new Pair<>(document, numerators[document] / (queryNorm * Math.sqrt(norms[document])));
+
+            if (heap.size() < number) {
+                heap.add(result);
+            } else if (number > 0 && order.compare(result, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(result);
+            }
+        }
+
+        ArrayList<Pair<Integer, Double>> sorted = new ArrayList<>(heap);
+        sorted.sort(order);
+        ArrayList<Pair<String, Double>> top = new ArrayList<>();
+
+        for (Pair<Integer, Double> result : sorted) {
+            top.add(new Pair<>(index.getDocumentNames().get(result.getFirst()), result.getSecond()));
+        }
+
+        return top;
+    }
+
+    /**
+     * Calculates a page of the results of the query, the documents that come after a cursor sorted highest to
+     * lowest by similarity (and lowest to highest by document id when the similarity is the same):
+     * <p>
+     * First: the name of the document.
+     * Second: the similarity of that document with the query.
+     * <p>
+     * Only the documents after the cursor are admitted in a bounded heap of the size of the page, so a page
+     * costs O(n log k) instead of sorting all the results. The cursor of the next page is available with
+     * getCursor().
+     *
+     * @param cursor the cursor returned with the previous page or null for the first page.
+     * @param size   the number of documents of the page.
+     * @return an array with the documents of the page.
+     */
+    ArrayList<Pair<String, Double>> page(String cursor, int size) {
+
+        ArrayList<Pair<String, Double>> page = new ArrayList<>();
+        nextCursor = null;
+
+        if ((query.isEmpty() && titleQuery.isEmpty()) || size <= 0) {
+            return page;
+        }
+
+        double[] scores = scores();
+        double lastScore = Double.POSITIVE_INFINITY;
+        int lastDocument = -1;
+
+        if (cursor != null) {
+            String[] parts = cursor.split("-");
+            lastScore = Double.longBitsToDouble(Long.parseUnsignedLong(parts[0], 16));
+            lastDocument = Integer.parseInt(parts[1], 16);
+        }
+
+        Comparator<Integer> order = (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : a - b;
+        PriorityQueue<Integer> heap = new PriorityQueue<>(size, order.reversed());
+
+        for (int document = 0; document < scores.length; ++document) {
+
+            double score = scores[document];
+
+            if (score == 0.0 || score > lastScore || (score == lastScore && document <= lastDocument)) {
+                continue;
+            }
+
+            if (heap.size() < size) {
+                heap.add(document);
+            } else if (order.compare(document, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(document);
+            }
+        }
+
+        ArrayList<Integer> documents = new ArrayList<>(heap);
+        documents.sort(order);
+
+        for (int document : documents) {
+            page.add(new Pair<>(index.getDocumentNames().get(document), scores[document]));
+        }
+
+        if (documents.size() == size) {
+            int last = documents.get(documents.size() - 1);
+            nextCursor = Long.toHexString(Double.doubleToLongBits(scores[last])) + "-" + Integer.toHexString(last);
+        }
+
+        return page;
+    }
+
+    /**
+     * @return The opaque cursor of the page after the last page calculated or null if there are no more pages.
+     * It holds a document id, so it is only valid with the same generation of the Index.
+     */
+    String getCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Sets the weight of the similarity of the titles. If it is greater than 0, all the words of the query are
+     * also searched in the titles and the similarity of the titles multiplied by the boost is added to the
+     * similarity of the text.
+     *
+     * @param titleBoost the weight of the similarity of the titles.
+     */
+    void setTitleBoost(double titleBoost) {
+        this.titleBoost = titleBoost;
+    }
+
+    /**
+     * @return true if some words of the query are only searched in the titles.
+     */
+    boolean hasTitleWords() {
+        return !titleQuery.isEmpty();
+    }
+
+    /**
+     * @return The words of the query searched in the titles with their weights: the words written as
+     * 'title:word', and also the rest of the words if the title boost is greater than 0.
+     */
+    private ArrayList<Pair<String, Double>> getTitleQuery() {
+        return titleBoost > 0.0 ? boostedTitleQuery : titleQuery;
+    }
+
+    /**
+     * Sets the kernel that adds the postings of the query words to the scores of the documents.
+     *
+     * @param kernel the ScoringKernel used by similarities().
+     */
+    void setKernel(ScoringKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * Calculates the top documents for the query with the ImpactIndex and returns an
+     * ArrayList<Pair<String, Double>> sorted highest to lowest with:
+     * <p>
+     * First: the name of the document.
+     * Second: the dot product of the quantized weights of the document and the query.
+     * <p>
+     * The postings are evaluated score-at-a-time: the blocks of documents with the same impact are processed in
+     * decreasing order of their contribution to the score, and the evaluation stops as soon as the remaining
+     * blocks can no longer change the top documents (the top partial scores are kept as they grow, so the check
+     * after each block does not sort the documents, and only the kept top is sorted at the end). The result is an approximation of the cosine similarity
+     * (the weights are quantized and the documents are not normalized by their norm).
+     *
+     * @param number the number of top documents to return.
+     * @return an array with the top documents for the query sorted highest to lowest (by score).
+     */
+    ArrayList<Pair<String, Double>> impactSimilarities(int number) {
+
+        ImpactIndex impactIndex = index.getImpactIndex();
+        ArrayList<ImpactPostings> lists = new ArrayList<>();
+        ArrayList<Integer> queryImpacts = new ArrayList<>();
+        ArrayList<Pair<String, Double>> top = new ArrayList<>();
+        double maxQuery = 0.0;
+        postingsScanned = 0;
+        postingsTotal = 0;
+
+        for (Pair<String, Double> element : query) {
+            if (impactIndex.get(element.getFirst()) != null) {
+                maxQuery = Math.max(maxQuery, element.getSecond());
+            }
+        }
+
+        for (Pair<String, Double> element : query) {
+            ImpactPostings postings = impactIndex.get(element.getFirst());
+            int impact = ImpactIndex.quantize(element.getSecond(), maxQuery);
+
+            if (postings != null && impact > 0) {
+                lists.add(postings);
+                queryImpacts.add(impact);
+                postingsTotal += postings.size();
+            }
+        }
+
+        if (lists.isEmpty() || number <= 0) {
+            return top;
+        }
+
+        int[] positions = new int[lists.size()];
+        int[] accumulators = new int[index.getDocumentNames().size()];
+        TopScores topScores = new TopScores(accumulators, number + 1);
+        PriorityQueue<Integer> blocks = new PriorityQueue<>((a, b) ->
+                queryImpacts.get(b) * lists.get(b).getImpact(positions[b]) - queryImpacts.get(a) * lists.get(a).getImpact(positions[a]));
+        int remaining = 0;
+
+        for (int i = 0; i < lists.size(); ++i) {
+            blocks.add(i);
+            remaining += queryImpacts.get(i) * lists.get(i).getImpact(0);
+        }
+
+        while (!blocks.isEmpty()) {
+
+            int list = blocks.poll();
+            ImpactPostings postings = lists.get(list);
+            int impact = postings.getImpact(positions[list]);
+            int contribution = queryImpacts.get(list) * impact;
+
+            while (positions[list] < postings.size() && postings.getImpact(positions[list]) == impact) {
+                int document = postings.getDocument(positions[list]);
+                accumulators[document] += contribution;
+                topScores.update(document);
+                ++positions[list];
+                ++postingsScanned;
+            }
+
+            remaining -= contribution;
+
+            if (positions[list] < postings.size()) {
+                remaining += queryImpacts.get(list) * postings.getImpact(positions[list]);
+                blocks.add(list);
+            }
+
+            if (topScores.size() > number && isTopStable(topScores, remaining)) {
+                break;
+            }
+        }
+
+        int[] documents = topScores.sorted();
+        double scale = impactIndex.getMaxWeight() * maxQuery / (ImpactIndex.LEVELS * ImpactIndex.LEVELS);
+
+        for (int i = 0; i < documents.length && i < number; ++i) {
+            int document = documents[i];
+            top.add(new Pair<>(index.getDocumentNames().get(document), accumulators[document] * scale));
+        }
+
+        return top;
+    }
+
+    /**
+     * Checks if the top documents can change with the remaining blocks: the number-th document must keep its
+     * position even if the next document gets all the remaining score, and a document that has not been seen
+     * yet can not reach it. The top keeps number + 1 documents, so both scores are read in O(1).
+     *
+     * @param top       the number + 1 documents with the highest partial scores.
+     * @param remaining the maximum score a document can still get.
+     * @return true if the top documents can no longer change.
+     */
+    private boolean isTopStable(TopScores top, int remaining) {
+
+        int next = top.lowest();
+        int last = top.secondLowest();
+
+        return last >= next + remaining && last >= remaining;
+    }
+
+    /**
+     * Calculates the similarity of the documents in the champion lists of the query words and returns an
+     * ArrayList<Pair<String, Double>> sorted highest to lowest with:
+     * <p>
+     * First: the name of the document.
+     * Second: the similarity of that document with the query.
+     * <p>
+     * Only the documents of the champion lists (the high tier of each word) are candidates, and their cosine
+     * similarity is calculated with the full Postings of the query words. If there are fewer candidates than
+     * the number of documents needed (or the Index has no champion lists), all the documents are scored with
+     * similarities().
+     *
+     * @param number the number of relevant documents needed.
+     * @return an array with the candidate documents and their similarity with the query sorted highest to lowest.
+     */
+    ArrayList<Pair<String, Double>> championSimilarities(int number) {
+
+        if (index.getAllChampions() == null || query.isEmpty()) {
+            return similarities();
+        }
+
+        boolean[] marked = new boolean[index.getDocumentNames().size()];
+        ArrayList<Integer> candidates = new ArrayList<>();
+        postingsScanned = 0;
+        postingsTotal = 0;
+
+        for (Pair<String, Double> element : query) {
+
+            Postings champions = index.getChampions(element.getFirst());
+            if (champions != null) {
+                for (int document : champions.getDocuments()) {
+                    if (!marked[document]) {
+                        marked[document] = true;
+                        candidates.add(document);
                     }
                 }
+                postingsScanned += champions.size();
+            }
+        }
+
+        if (candidates.size() < number) {
+            return similarities();
+        }
+
+        for (Pair<String, Double> element : query) {
+            Postings postings = index.getPostings(element.getFirst());
+            if (postings != null) {
+                postingsTotal += postings.size();
+            }
+        }
 
-                wnijNorm = Math.sqrt(wnijNorm);
+        return scoreCandidates(candidates);
+    }
+
+    /**
+     * Calculates the similarity of the documents in the clusters closest to the query and returns an
+     * ArrayList<Pair<String, Double>> sorted highest to lowest with:
+     * <p>
+     * First: the name of the document.
+     * Second: the similarity of that document with the query.
+     * <p>
+     * The query vector is compared with the leaders of the clusters first, and only the documents of the
+     * best clusters are scored with their cosine similarity. More clusters than the probes are visited while
+     * there are fewer candidates than the number of documents needed. The postings read are the postings of
+     * the query words that belong to the documents scored. If the Index has no clusters, all the documents are
+     * scored with similarities().
+     *
+     * @param number the number of relevant documents needed.
+     * @param probes the number of clusters to visit.
+     * @return an array with the candidate documents and their similarity with the query sorted highest to lowest.
+     */
+    ArrayList<Pair<String, Double>> clusterSimilarities(int number, int probes) {
+
+        DocumentClusters clusters = index.getClusters();
+        postingsScanned = 0;
+        postingsTotal = 0;
+
+        if (clusters == null || index.getDictionary() == null || query.isEmpty()) {
+            return similarities();
+        }
+
+        ArrayList<Integer> ids = new ArrayList<>();
+        ArrayList<Double> weights = new ArrayList<>();
+
+        for (Pair<String, Double> element : query) {
+            int term = index.getDictionary().indexOf(element.getFirst());
+            if (term != -1) {
+                ids.add(term);
+                weights.add(element.getSecond());
+                postingsTotal += index.getPostings(element.getFirst()).size();
+            }
+        }
+
+        int[] terms = new int[ids.size()];
+        double[] values = new double[ids.size()];
+
+        for (int i = 0; i < terms.length; ++i) {
+            terms[i] = ids.get(i);
+            values[i] = weights.get(i);
+        }
+
+        Integer[] ranking = clusters.rank(terms, values);
+        ArrayList<Integer> candidates = new ArrayList<>();
+
+        for (int i = 0; i < ranking.length && (i < probes || candidates.size() < number); ++i) {
+            for (int document : clusters.getMembers(ranking[i])) {
+                candidates.add(document);
+            }
+        }
+
+        documentsScored = candidates.size();
+        ArrayList<Pair<String, Double>> top = scoreCandidates(candidates);
+        postingsScanned = candidatePostings;
+
+        return top;
+    }
+
+    /**
+     * Calculates the cosine similarity of some documents with the query, searching their weights in the full
+     * Postings of the query words and counting the postings found in candidatePostings.
+     *
+     * @param candidates the ids of the documents to score (without repetitions).
+     * @return an array with the documents and their similarity with the query sorted highest to lowest.
+     */
+    private ArrayList<Pair<String, Double>> scoreCandidates(ArrayList<Integer> candidates) {
 
-                if (numerator != 0.0) {
-                    Double denominator = wniqNorm * wnijNorm;
-                    results.add(new Pair<>(document.getKey(), numerator / denominator));
+        ArrayList<Pair<String, Double>> scores = new ArrayList<>();
+        double wniqNorm = 0.0;
+        for (Pair<String, Double> element : query) {
+
+            if (index.get(element.getFirst()) != null) {
+                wniqNorm += element.getSecond() * element.getSecond();
+            }
+        }
+        wniqNorm = Math.sqrt(wniqNorm);
+        candidatePostings = 0;
+
+        for (int document : candidates) {
+
+            double numerator = 0.0, wnijNorm = 0.0;
+
+            for (Pair<String, Double> element : query) {
+
+                Postings postings = index.getPostings(element.getFirst());
+                if (postings != null) {
+                    int position = Arrays.binarySearch(postings.getDocuments(), document);
+                    if (position >= 0) {
+                        double wnij = postings.getWeights()[position];
+                        numerator += element.getSecond() * wnij;
+                        wnijNorm += wnij * wnij;
+                        ++candidatePostings;
+                    }
                 }
             }
 
-            QuickSort quickSort = new QuickSort();
-            quickSort.sort(results);
+            if (numerator != 0.0) {
+                double denominator = wniqNorm * Math.sqrt(wnijNorm);
+                scores.add(new Pair<>(index.getDocumentNames().get(document), numerator / denominator));
+            }
         }
 
-        return results;
+        QuickSort quickSort = new QuickSort();
+        quickSort.sort(scores);
+
+        return scores;
+    }
+
+    /**
+     * Returns the fraction of the top documents of the exact results that are also in the top documents of
+     * the approximate results.
+     *
+     * @param approximate the results of an approximate evaluation.
+     * @param exact       the results of the exact evaluation.
+     * @param number      the number of top documents to compare.
+     * @return the overlap between both tops (between 0 and 1).
+     */
+    static double overlap(ArrayList<Pair<String, Double>> approximate, ArrayList<Pair<String, Double>> exact, int number) {
+
+        HashSet<String> documents = new HashSet<>();
+        int common = 0;
+
+        for (int i = 0; i < approximate.size() && i < number; ++i) {
+            documents.add(approximate.get(i).getFirst());
+        }
+
+        for (int i = 0; i < exact.size() && i < number; ++i) {
+            if (documents.contains(exact.get(i).getFirst())) {
+                ++common;
+            }
+        }
+
+        return exact.isEmpty() ? 1.0 : (double) common / Math.min(number, exact.size());
     }
 
     /**
-     * @return A String Array with all the words of the query (stem words).
+     * @return The number of postings read by the last evaluation of the query with the ImpactIndex, the
+     * champion lists or the clusters.
+     */
+    int getPostingsScanned() {
+        return postingsScanned;
+    }
+
+    /**
+     * @return The number of documents scored by the last evaluation of the query with the clusters.
+     */
+    int getDocumentsScored() {
+        return documentsScored;
+    }
+
+    /**
+     * @return The total number of postings of the words of the query in the ImpactIndex or the Postings
+     * (after the last evaluation with the ImpactIndex, the champion lists or the clusters).
+     */
+    int getPostingsTotal() {
+        return postingsTotal;
+    }
+
+    /**
+     * Builds the text of a query expanded with the pseudo relevance feedback (PSR): the text of the query
+     * followed by the top words of its first relevant documents that are not already in the query.
+     *
+     * @param index     the Index of the documents's collection.
+     * @param line      the text of the query.
+     * @param query     the query.
+     * @param top       the relevant documents of the query sorted highest to lowest (by similarity).
+     * @param documents the maximum number of relevant documents for the PSR.
+     * @param words     the number of top words of each relevant document.
+     * @return the text of the expanded query.
+     */
+    static String feedbackText(Index index, String line, Query query, ArrayList<Pair<String, Double>> top,
+                               int documents, int words) {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(line);
+        sb.append(" ");
+        HashSet<Integer> usedWords = new HashSet<>();
+
+        for (int word : index.getVocabulary().indexOf(query.getQuery())) {
+            usedWords.add(word);
+        }
+
+        for (int i = 0; i < documents && i < top.size(); ++i) {
+
+            sb.append(index.getTopWords(top.get(i).getFirst(), words, usedWords));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return A String Array with all the words of the query (stem words), the ones searched in the text
+     * followed by the ones only searched in the titles that are not searched in the text.
      */
     String[] getQuery() {
 
-        String[] words = new String[query.size()];
+        LinkedHashSet<String> words = new LinkedHashSet<>();
 
-        for (int i = 0; i < words.length; ++i) {
-            words[i] = query.get(i).getFirst();
+        for (Pair<String, Double> element : query) {
+            words.add(element.getFirst());
+        }
+
+        for (Pair<String, Double> element : titleQuery) {
+            words.add(element.getFirst());
         }
 
-        return words;
+        return words.toArray(new String[0]);
     }
 
 }
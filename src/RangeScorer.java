@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveTask;
+
+class RangeScorer extends RecursiveTask<ArrayList<Pair<Integer, Double>>> {
+
+    private Postings[] bodyPostings, titlePostings;
+    private double[] bodyWeights, titleWeights;
+    private double bodyNorm, titleNorm, boost;
+    private int excluded, mode, number, from, to, grain;
+
+    /**
+     * Creates a new RangeScorer object, a ForkJoin task that scores the documents of a range of ids for a
+     * query and keeps its own top documents. Ranges longer than the grain are split in two tasks whose top
+     * documents are merged:
+     * <p>
+     * 1- BodyPostings and BodyWeights: the postings of the query words searched in the text and their weights
+     * in the query.
+     * 2- TitlePostings and TitleWeights: the same for the query words searched in the titles.
+     * 3- BodyNorm, TitleNorm and Boost: the norms of the query in each field and the weight of the titles.
+     * 4- Excluded: the document that is never returned (-1 if there is none).
+     * 5- Mode: the mode of the ScoringKernel of each task.
+     * 6- Number: the number of top documents kept by each task.
+     * 7- From, To and Grain: the range of document ids and the longest range scored without splitting it.
+     */
+    RangeScorer(Postings[] bodyPostings, double[] bodyWeights, Postings[] titlePostings, double[] titleWeights,
+                double bodyNorm, double titleNorm, double boost, int excluded, int mode, int number, int from,
+                int to, int grain) {
+
+        this.bodyPostings = bodyPostings;
+        this.bodyWeights = bodyWeights;
+        this.titlePostings = titlePostings;
+        this.titleWeights = titleWeights;
+        this.bodyNorm = bodyNorm;
+        this.titleNorm = titleNorm;
+        this.boost = boost;
+        this.excluded = excluded;
+        this.mode = mode;
+        this.number = number;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+    }
+
+    /**
+     * @return The top documents of the range as Pairs (document id, similarity) sorted highest to lowest by
+     * similarity and lowest to highest by document id.
+     */
+    @Override
+    protected ArrayList<Pair<Integer, Double>> compute() {
+
+        if (to - from > grain) {
+
+            int middle = (from + to) >>> 1;
+            RangeScorer left = new RangeScorer(bodyPostings, bodyWeights, titlePostings, titleWeights, bodyNorm,
+                    titleNorm, boost, excluded, mode, number, from, middle, grain);
+            RangeScorer right = new RangeScorer(bodyPostings, bodyWeights, titlePostings, titleWeights, bodyNorm,
+                    titleNorm, boost, excluded, mode, number, middle, to, grain);
+
+            left.fork();
+            ArrayList<Pair<Integer, Double>> rightTop = right.compute();
+
+            return merge(left.join(), rightTop, number);
+        }
+
+        int length = to - from;
+        ScoringKernel kernel = new ScoringKernel(mode);
+        double[] numerators = new double[length], norms = new double[length];
+        double[] titleNumerators = null, titleNorms = null;
+
+        for (int i = 0; i < bodyPostings.length; ++i) {
+            int[] documents = bodyPostings[i].getDocuments();
+            kernel.accumulate(bodyPostings[i], lowerBound(documents, from), lowerBound(documents, to), from,
+                    bodyWeights[i], numerators, norms);
+        }
+
+        if (titleNorm > 0.0) {
+            titleNumerators = new double[length];
+            titleNorms = new double[length];
+
+            for (int i = 0; i < titlePostings.length; ++i) {
+                int[] documents = titlePostings[i].getDocuments();
+                kernel.accumulate(titlePostings[i], lowerBound(documents, from), lowerBound(documents, to), from,
+                        titleWeights[i], titleNumerators, titleNorms);
+            }
+        }
+
+        PriorityQueue<Pair<Integer, Double>> top = new PriorityQueue<>((a, b) -> compare(b, a));
+
+        for (int i = 0; i < length; ++i) {
+
+            double score = 0.0;
+
+            if (numerators[i] != 0.0) {
+                score = numerators[i] / (bodyNorm * Math.sqrt(norms[i]));
+            }
+
+            if (titleNumerators != null && titleNumerators[i] != 0.0) {
+                score += boost * titleNumerators[i] / (titleNorm * Math.sqrt(titleNorms[i]));
+            }
+
+            if (score != 0.0 && from + i != excluded) {
+                Pair<Integer, Double> result = new Pair<>(from + i, score);
+
+                if (top.size() < number) {
+                    top.add(result);
+                } else if (number > 0 && compare(result, top.peek()) < 0) {
+                    top.poll();
+                    top.add(result);
+                }
+            }
+        }
+
+        ArrayList<Pair<Integer, Double>> sorted = new ArrayList<>(top);
+        sorted.sort(RangeScorer::compare);
+
+        return sorted;
+    }
+
+    /**
+     * @return The position of the first document id of the sorted ids that is not lower than a document id.
+     */
+    private static int lowerBound(int[] documents, int document) {
+
+        int position = Arrays.binarySearch(documents, document);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    /**
+     * @return A negative number if the first result goes before the second one (higher similarity or, with the
+     * same similarity, lower document id), a positive number if it goes after them.
+     */
+    private static int compare(Pair<Integer, Double> a, Pair<Integer, Double> b) {
+
+        int compare = Double.compare(b.getSecond(), a.getSecond());
+        return compare != 0 ? compare : Integer.compare(a.getFirst(), b.getFirst());
+    }
+
+    /**
+     * Merges the top documents of two ranges.
+     *
+     * @param a      the top documents of a range, sorted.
+     * @param b      the top documents of another range, sorted.
+     * @param number the number of top documents kept.
+     * @return the top documents of both ranges, sorted.
+     */
+    private static ArrayList<Pair<Integer, Double>> merge(ArrayList<Pair<Integer, Double>> a,
+                                                          ArrayList<Pair<Integer, Double>> b, int number) {
+
+        ArrayList<Pair<Integer, Double>> merged = new ArrayList<>();
+        int i = 0, j = 0;
+
+        while (merged.size() < number && (i < a.size() || j < b.size())) {
+            if (j == b.size() || (i < a.size() && compare(a.get(i), b.get(j)) <= 0)) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+
+        return merged;
+    }
+
+}
@@ -0,0 +1,254 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class RelevanceEvaluation {
+
+    private static final int RETRIEVED = 1000;
+    private static final String[] MODES = {"Exact cosine", "Parallel ranges", "Champion lists", "Cluster pruning",
+            "Impact ordered", "Exact + PSR"};
+
+    private Index index;
+    private LinkedHashMap<String, String> queries;
+    private HashMap<String, HashMap<String, Integer>> judgments;
+    private int depth, maxExpansions, kernelMode, clusterProbes, feedbackDocuments, feedbackWords;
+
+    /**
+     * Creates a new RelevanceEvaluation object that measures the quality and the cost of each search mode
+     * over a set of queries with relevance judgments:
+     * <p>
+     * 1- Index: the Index of the documents's collection.
+     * 2- Queries: the id and the text of each query, from a file with a query per line ('id text').
+     * 3- Judgments: the relevance of the judged documents of each query, from a qrels file in TREC format
+     * ('id iteration document relevance' per line, relevance 0 for the non relevant documents).
+     * 4- Depth: the cut-off k of P@k and nDCG@k.
+     * 5- MaxExpansions and KernelMode: the configuration of the queries.
+     * 6- ClusterProbes: the number of clusters scored by the cluster pruning.
+     * 7- FeedbackDocuments and FeedbackWords: the relevant documents and the top words of each one of the PSR.
+     *
+     * @param index             the Index of the documents's collection.
+     * @param queriesPath       the path of the queries.
+     * @param qrelsPath         the path of the relevance judgments.
+     * @param depth             the cut-off of P@k and nDCG@k.
+     * @param maxExpansions     the maximum number of words a query word is expanded to.
+     * @param kernelMode        the mode of the ScoringKernel.
+     * @param clusterProbes     the number of clusters scored by the cluster pruning.
+     * @param feedbackDocuments the maximum number of relevant documents for the PSR.
+     * @param feedbackWords     the number of top words for the PSR.
+     */
+    RelevanceEvaluation(Index index, String queriesPath, String qrelsPath, int depth, int maxExpansions,
+                        int kernelMode, int clusterProbes, int feedbackDocuments, int feedbackWords) throws IOException {
+
+        this.index = index;
+        this.depth = depth;
+        this.maxExpansions = maxExpansions;
+        this.kernelMode = kernelMode;
+        this.clusterProbes = clusterProbes;
+        this.feedbackDocuments = feedbackDocuments;
+        this.feedbackWords = feedbackWords;
+        queries = new LinkedHashMap<>();
+        judgments = new HashMap<>();
+
+        for (String line : readLines(queriesPath)) {
+            String[] fields = line.trim().split("\\s+", 2);
+            if (fields.length == 2) {
+                queries.put(fields[0], fields[1]);
+            }
+        }
+
+        for (String line : readLines(qrelsPath)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length == 4) {
+                judgments.computeIfAbsent(fields[0], k -> new HashMap<>()).put(fields[2], Integer.parseInt(fields[3]));
+            }
+        }
+
+        queries.keySet().removeIf(id -> !judgments.containsKey(id));
+    }
+
+    /**
+     * @return The lines of a UTF-8 file.
+     */
+    private static ArrayList<String> readLines(String path) throws IOException {
+
+        ArrayList<String> lines = new ArrayList<>();
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Runs every query with each search mode the Index supports (the modes whose structures were not built
+     * are skipped, and only the impact ordered mode is run if the Index has no exact Postings) and measures MAP (over the first 1000 documents), nDCG@k, P@k, the mean and 95th
+     * percentile latency and the postings read per query. The queries are run once with the exact cosine (or
+     * the impacts) before measuring, to warm up the JIT compiler.
+     *
+     * @return a String with a row per mode, ready to be printed.
+     */
+    String run() throws Exception {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Queries with judgments: ").append(queries.size()).append(".\n");
+
+        if (queries.isEmpty()) {
+            return sb.toString();
+        }
+
+        for (String text : queries.values()) {
+            search(index.isImpactOnly() ? 4 : 0, text);
+        }
+
+        if (index.isImpactOnly()) {
+            sb.append("The Index only has quantized impacts (ImpactIndex 2), the exact modes are skipped.\n");
+        }
+
+        sb.append(String.format("%-16s %8s %8s %8s %10s %10s %14s%n", "Mode", "MAP", "nDCG@" + depth, "P@" + depth,
+                "Mean ms", "P95 ms", "Postings read"));
+
+        for (int mode = 0; mode < MODES.length; ++mode) {
+
+            if ((mode == 2 && index.getAllChampions() == null) || (mode == 3 && index.getClusters() == null)
+                    || (mode == 4 && index.getImpactIndex() == null) || (mode != 4 && index.isImpactOnly())) {
+                continue;
+            }
+
+            double averagePrecision = 0.0, ndcg = 0.0, precision = 0.0, postings = 0.0;
+            double[] latencies = new double[queries.size()];
+            int i = 0;
+
+            for (Map.Entry<String, String> entry : queries.entrySet()) {
+
+                long start = System.nanoTime();
+                Pair<ArrayList<Pair<String, Double>>, Long> result = search(mode, entry.getValue());
+                latencies[i++] = (System.nanoTime() - start) / 1e6;
+
+                HashMap<String, Integer> relevance = judgments.get(entry.getKey());
+                averagePrecision += averagePrecision(result.getFirst(), relevance);
+                ndcg += ndcg(result.getFirst(), relevance, depth);
+                precision += precision(result.getFirst(), relevance, depth);
+
+                postings += result.getSecond();
+            }
+
+            Arrays.sort(latencies);
+            double mean = Arrays.stream(latencies).average().orElse(0.0);
+            double p95 = latencies[Math.min(latencies.length - 1, (int) Math.ceil(0.95 * latencies.length) - 1)];
+            int n = queries.size();
+
+            sb.append(String.format("%-16s %8.4f %8.4f %8.4f %10.3f %10.3f %14.0f%n", MODES[mode], averagePrecision / n,
+                    ndcg / n, precision / n, mean, p95, postings / n));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Searches a query with a mode.
+     *
+     * @param mode the position of the mode in MODES.
+     * @param text the text of the query.
+     * @return a Pair with:
+     * First: the documents found sorted highest to lowest (by similarity).
+     * Second: the postings read.
+     */
+    private Pair<ArrayList<Pair<String, Double>>, Long> search(int mode, String text) throws Exception {
+
+        Query query = new Query(index, text, maxExpansions);
+        query.setKernel(new ScoringKernel(kernelMode));
+
+        switch (mode) {
+            case 1:
+                return new Pair<>(query.parallelSimilarities(RETRIEVED), query.getCost());
+            case 2:
+                return new Pair<>(query.championSimilarities(RETRIEVED), (long) query.getPostingsScanned());
+            case 3:
+                return new Pair<>(query.clusterSimilarities(RETRIEVED, clusterProbes), (long) query.getPostingsScanned());
+            case 4:
+                return new Pair<>(query.impactSimilarities(RETRIEVED), (long) query.getPostingsScanned());
+            case 5:
+                ArrayList<Pair<String, Double>> top = query.similarities();
+                Query feedback = new Query(index, Query.feedbackText(index, text, query, top, feedbackDocuments,
+                        feedbackWords), maxExpansions);
+                feedback.setKernel(new ScoringKernel(kernelMode));
+                return new Pair<>(feedback.similarities(), query.getCost() + feedback.getCost());
+            default:
+                return new Pair<>(query.similarities(), query.getCost());
+        }
+    }
+
+    /**
+     * @return The average precision of a ranking over its first 1000 documents.
+     */
+    private static double averagePrecision(ArrayList<Pair<String, Double>> ranking, HashMap<String, Integer> relevance) {
+
+        int relevant = 0, found = 0;
+        double sum = 0.0;
+
+        for (int grade : relevance.values()) {
+            if (grade > 0) {
+                ++relevant;
+            }
+        }
+
+        for (int i = 0; i < ranking.size() && i < RETRIEVED; ++i) {
+            if (relevance.getOrDefault(ranking.get(i).getFirst(), 0) > 0) {
+                ++found;
+                sum += (double) found / (i + 1);
+            }
+        }
+
+        return relevant == 0 ? 0.0 : sum / relevant;
+    }
+
+    /**
+     * @return The normalized discounted cumulative gain of the first k documents of a ranking, with gain
+     * 2^relevance - 1.
+     */
+    private static double ndcg(ArrayList<Pair<String, Double>> ranking, HashMap<String, Integer> relevance, int k) {
+
+        double dcg = 0.0, ideal = 0.0;
+
+        for (int i = 0; i < ranking.size() && i < k; ++i) {
+            int grade = Math.max(0, relevance.getOrDefault(ranking.get(i).getFirst(), 0));
+            dcg += (Math.pow(2, grade) - 1) / (Math.log(i + 2) / Math.log(2));
+        }
+
+        Integer[] grades = relevance.values().toArray(new Integer[0]);
+        Arrays.sort(grades, (a, b) -> b - a);
+
+        for (int i = 0; i < grades.length && i < k; ++i) {
+            ideal += (Math.pow(2, Math.max(0, grades[i])) - 1) / (Math.log(i + 2) / Math.log(2));
+        }
+
+        return ideal == 0.0 ? 0.0 : dcg / ideal;
+    }
+
+    /**
+     * @return The fraction of relevant documents among the first k documents of a ranking.
+     */
+    private static double precision(ArrayList<Pair<String, Double>> ranking, HashMap<String, Integer> relevance, int k) {
+
+        int found = 0;
+
+        for (int i = 0; i < ranking.size() && i < k; ++i) {
+            if (relevance.getOrDefault(ranking.get(i).getFirst(), 0) > 0) {
+                ++found;
+            }
+        }
+
+        return k == 0 ? 0.0 : (double) found / k;
+    }
+
+}
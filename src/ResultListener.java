@@ -0,0 +1,18 @@
+import java.util.ArrayList;
+
+interface ResultListener {
+
+    /**
+     * Receives the top documents of a query while it is being scored. The first updates are provisional: their
+     * similarities only include the postings read so far. The last update, when all the postings have been
+     * read, has the exact top documents.
+     *
+     * @param top           the top documents so far sorted highest to lowest (by similarity), with:
+     *                      First: the name of the document.
+     *                      Second: the similarity of that document with the query.
+     * @param postingsRead  the number of postings read so far.
+     * @param postingsTotal the number of postings of the query.
+     */
+    void update(ArrayList<Pair<String, Double>> top, long postingsRead, long postingsTotal);
+
+}
@@ -0,0 +1,224 @@
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class ScalingHarness {
+
+    private static final int RETRIEVED = 10;
+
+    private int[] sizes;
+    private int documentLength, queries, maxExpansions;
+    private File directory;
+
+    /**
+     * Creates a new ScalingHarness object that builds and queries synthetic collections of growing size:
+     * <p>
+     * 1- Sizes: the number of documents of each collection.
+     * 2- DocumentLength: the average number of words of the documents.
+     * 3- Queries: the number of queries of the workload run against each Index.
+     * 4- MaxExpansions: the maximum number of words a query word is expanded to.
+     * 5- Directory: the directory where the collections, their Index and the results are written.
+     *
+     * @param sizes          the number of documents of each collection.
+     * @param documentLength the average number of words of the documents.
+     * @param queries        the number of queries of the workload.
+     * @param maxExpansions  the maximum number of words a query word is expanded to.
+     * @param directory      the directory of the scaling test.
+     */
+    ScalingHarness(int[] sizes, int documentLength, int queries, int maxExpansions, File directory) {
+
+        this.sizes = sizes;
+        this.documentLength = documentLength;
+        this.queries = queries;
+        this.maxExpansions = maxExpansions;
+        this.directory = directory;
+    }
+
+    /**
+     * Runs the scaling test. For each size it generates a collection, builds its Index in a new JVM (with the
+     * configuration of 'confData.json' in build mode), loads the Index and runs a workload of random queries.
+     * The build time, the peak heap of the build, the size of the Index, the startup time and the percentiles of
+     * the query latency are printed and appended to 'results.csv' in the directory of the test.
+     */
+    void run() throws Exception {
+
+        File results = new File(directory, "results.csv");
+        boolean header = !results.exists();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create the directory '" + directory + "'.");
+        }
+
+        try (PrintWriter csv = new PrintWriter(new FileWriter(results, true))) {
+
+            if (header) {
+                csv.println("documents,build_seconds,peak_heap_mb,index_mb,startup_seconds,p50_ms,p95_ms,p99_ms");
+            }
+
+            for (int size : sizes) {
+
+                File work = new File(directory, String.valueOf(size));
+                File collection = new File(work, "collection");
+                CorpusGenerator generator = new CorpusGenerator(Math.max(1000, size), 1.0, size);
+
+                System.out.println("Generating " + size + " documents...");
+                generator.generate(collection, size, documentLength);
+
+                writeConfiguration(work, collection);
+                Files.copy(new File("StopWords.txt").toPath(), new File(work, "StopWords.txt").toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+
+                System.out.println("Building the Index...");
+                long start = System.nanoTime();
+                double peakHeap = build(work);
+                double buildSeconds = (System.nanoTime() - start) / 1e9;
+
+                start = System.nanoTime();
+                IndexManager manager = new IndexManager(new File(work, "index" + File.separator + "Index").getPath());
+                double startupSeconds = (System.nanoTime() - start) / 1e9;
+
+                IndexGeneration generation = manager.acquire();
+                double indexMegabytes = new File(generation.getName()).length() / 1048576.0;
+                double[] latencies;
+
+                try {
+                    latencies = workload(generation.getIndex(), generator);
+                } finally {
+                    generation.release();
+                    manager.close();
+                }
+
+                String line = size + "," + format(buildSeconds) + "," + format(peakHeap) + "," + format(indexMegabytes)
+                        + "," + format(startupSeconds) + "," + format(percentile(latencies, 0.50)) + ","
+                        + format(percentile(latencies, 0.95)) + "," + format(percentile(latencies, 0.99));
+
+                System.out.println(size + " documents: build " + format(buildSeconds) + " s, peak heap "
+                        + format(peakHeap) + " MB, Index " + format(indexMegabytes) + " MB, startup "
+                        + format(startupSeconds) + " s, query p50/p95/p99 " + format(percentile(latencies, 0.50))
+                        + "/" + format(percentile(latencies, 0.95)) + "/" + format(percentile(latencies, 0.99)) + " ms.");
+                csv.println(line);
+                csv.flush();
+            }
+        }
+    }
+
+    /**
+     * Writes the configuration of the build of a collection: the configuration of 'confData.json' in build mode,
+     * without checkpoints, reading the collection and saving the Index in the directory of the collection.
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeConfiguration(File work, File collection) throws Exception {
+
+        JSONObject configuration;
+
+        try (Reader reader = new FileReader("confData.json")) {
+            configuration = (JSONObject) new JSONParser().parse(reader);
+        }
+
+        configuration.put("ColectionPath", collection.getAbsolutePath());
+        configuration.put("IndexPath", "index" + File.separator + "Index");
+        configuration.put("ProgramMode", 0);
+        configuration.put("CheckpointInterval", 0);
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(work, "confData.json")),
+                StandardCharsets.UTF_8)) {
+            writer.write(configuration.toJSONString());
+        }
+    }
+
+    /**
+     * Builds the Index of a collection in a new JVM with the same classpath.
+     *
+     * @param work the directory with the configuration of the build.
+     * @return the peak heap of the build in megabytes, as printed by the build.
+     */
+    private static double build(File work) throws IOException, InterruptedException {
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "Main")
+                .directory(work).redirectErrorStream(true).start();
+        double peakHeap = 0.0;
+
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith("Peak heap: ")) {
+                    peakHeap = Double.parseDouble(line.substring("Peak heap: ".length(), line.indexOf(" MB")));
+                }
+            }
+        }
+
+        if (process.waitFor() != 0) {
+            throw new IOException("The build of '" + work + "' failed.");
+        }
+
+        return peakHeap;
+    }
+
+    /**
+     * Runs the queries of the workload: one to three content words chosen with the Zipf distribution of the
+     * collection. The first tenth of the queries warms up the JIT compiler and is not measured. If the Index
+     * only has quantized impacts (ImpactIndex 2), the queries are evaluated with them.
+     *
+     * @return the latency of each measured query in milliseconds, sorted lowest to highest.
+     */
+    private double[] workload(Index index, CorpusGenerator generator) throws Exception {
+
+        int warmUp = queries / 10;
+        ArrayList<Double> latencies = new ArrayList<>();
+
+        for (int i = 0; i < warmUp + queries; ++i) {
+
+            StringBuilder text = new StringBuilder(generator.nextContentWord());
+            int words = 1 + i % 3;
+
+            for (int j = 1; j < words; ++j) {
+                text.append(" ").append(generator.nextContentWord());
+            }
+
+            long start = System.nanoTime();
+            Query query = new Query(index, text.toString(), maxExpansions);
+
+            if (index.isImpactOnly()) {
+                query.impactSimilarities(RETRIEVED);
+            } else {
+                query.similarities();
+            }
+
+            long end = System.nanoTime();
+
+            if (i >= warmUp) {
+                latencies.add((end - start) / 1e6);
+            }
+        }
+
+        double[] sorted = new double[latencies.size()];
+        for (int i = 0; i < sorted.length; ++i) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+
+        return sorted;
+    }
+
+    /**
+     * @return The value at a percentile of some sorted values (0 if there are no values).
+     */
+    private static double percentile(double[] sorted, double percentile) {
+        return sorted.length == 0 ? 0.0 : sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * @return The value with three decimals.
+     */
+    private static String format(double value) {
+        return String.format(java.util.Locale.ROOT, "%.3f", value);
+    }
+
+}
@@ -0,0 +1,110 @@
+class ScoringKernel {
+
+    static final int SCALAR = 0;
+    static final int BLOCKED = 1;
+
+    private static final int BLOCK = 64;
+
+    private int mode;
+    private double[] products, squares;
+
+    /**
+     * Creates a new ScoringKernel object that adds the contribution of the postings of a query word to the
+     * score of each document:
+     * <p>
+     * 1- Mode: SCALAR processes one posting at a time. BLOCKED first computes the products and squares of a
+     * block of 64 weights in straight loops over contiguous arrays, that the JIT compiler turns into SIMD
+     * instructions, and then scatters them to the documents.
+     * 2- Products and Squares: the buffers of the block being processed.
+     *
+     * @param mode the mode of the kernel (SCALAR or BLOCKED).
+     */
+    ScoringKernel(int mode) {
+
+        this.mode = mode;
+        products = new double[BLOCK];
+        squares = new double[BLOCK];
+    }
+
+    /**
+     * Adds the query weight multiplied by the weight of each document to its numerator and the square of the
+     * weight of each document to its norm.
+     *
+     * @param postings    the postings of the query word.
+     * @param queryWeight the weight of the word in the query.
+     * @param numerators  the numerator of the similarity of each document.
+     * @param norms       the squared norm of each document over the words of the query.
+     */
+    void accumulate(Postings postings, double queryWeight, double[] numerators, double[] norms) {
+        accumulate(postings, 0, postings.size(), 0, queryWeight, numerators, norms);
+    }
+
+    /**
+     * Adds the contribution of a range of the postings of a query word to arrays that start at a document id,
+     * so a range of document ids can be scored on its own.
+     *
+     * @param postings    the postings of the query word.
+     * @param from        the first posting of the range.
+     * @param to          the posting after the last one of the range.
+     * @param offset      the document id of the first position of the arrays.
+     * @param queryWeight the weight of the word in the query.
+     * @param numerators  the numerator of the similarity of each document of the range.
+     * @param norms       the squared norm of each document of the range over the words of the query.
+     */
+    void accumulate(Postings postings, int from, int to, int offset, double queryWeight, double[] numerators,
+                    double[] norms) {
+
+        if (mode == BLOCKED) {
+            accumulateBlocks(postings.getDocuments(), postings.getWeights(), from, to, offset, queryWeight, numerators, norms);
+        } else {
+            accumulateScalar(postings.getDocuments(), postings.getWeights(), from, to, offset, queryWeight, numerators, norms);
+        }
+    }
+
+    /**
+     * Processes one posting at a time.
+     */
+    private void accumulateScalar(int[] documents, double[] weights, int from, int to, int offset,
+                                  double queryWeight, double[] numerators, double[] norms) {
+
+        for (int i = from; i < to; ++i) {
+            int document = documents[i] - offset;
+            double weight = weights[i];
+            numerators[document] += queryWeight * weight;
+            norms[document] += weight * weight;
+        }
+    }
+
+    /**
+     * Processes the postings in blocks: the arithmetic of a block is done in loops without dependencies between
+     * iterations, so it can be vectorized, and then the results are added to the documents.
+     */
+    private void accumulateBlocks(int[] documents, double[] weights, int from, int to, int offset,
+                                  double queryWeight, double[] numerators, double[] norms) {
+
+        for (int start = from; start < to; start += BLOCK) {
+
+            int length = Math.min(BLOCK, to - start);
+
+            for (int i = 0; i < length; ++i) {
+                double weight = weights[start + i];
+                products[i] = queryWeight * weight;
+                squares[i] = weight * weight;
+            }
+
+            for (int i = 0; i < length; ++i) {
+                int document = documents[start + i] - offset;
+                numerators[document] += products[i];
+                norms[document] += squares[i];
+            }
+        }
+    }
+
+    /**
+     * @return The mode of the kernel (SCALAR or BLOCKED).
+     */
+    int getMode() {
+        return mode;
+    }
+
+}
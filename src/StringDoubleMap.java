@@ -0,0 +1,243 @@
+import java.io.Serializable;
+import java.util.Arrays;
+
+class StringDoubleMap implements Serializable {
+
+    private String[] keys;
+    private double[] values;
+    private int size, shift;
+
+    /**
+     * Creates a new StringDoubleMap object, a map from words to primitive doubles with open addressing (linear
+     * probing), so the frequencies and weights are updated in place without boxing:
+     * <p>
+     * 1- Keys: the words of each slot (null if the slot is free). The number of slots is a power of two.
+     * 2- Values: the value of each slot.
+     * 3- Size: the number of words.
+     * 4- Shift: the bits discarded from the scrambled hash of a word to get its slot.
+     */
+    StringDoubleMap() {
+        this(8);
+    }
+
+    /**
+     * Creates a new StringDoubleMap object with room for a number of words before growing.
+     *
+     * @param expected the expected number of words.
+     */
+    StringDoubleMap(int expected) {
+
+        int capacity = 4;
+        while (capacity * 3 < expected * 4) {
+            capacity *= 2;
+        }
+
+        keys = new String[capacity];
+        values = new double[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    /**
+     * @return The first slot where a word is searched (Fibonacci hashing of its hash code).
+     */
+    private int slotOf(String key) {
+        return (key.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * @return The slot of a word or the free slot where it would be inserted.
+     */
+    private int find(String key) {
+
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * @param key     the word.
+     * @param missing the value returned if the word is not in the map.
+     * @return The value of the word.
+     */
+    double get(String key, double missing) {
+
+        int slot = find(key);
+        return keys[slot] == null ? missing : values[slot];
+    }
+
+    /**
+     * @param key the word.
+     * @return true if the word is in the map.
+     */
+    boolean containsKey(String key) {
+        return keys[find(key)] != null;
+    }
+
+    /**
+     * Sets the value of a word, inserting it if it is not in the map.
+     *
+     * @param key   the word.
+     * @param value the value.
+     */
+    void put(String key, double value) {
+
+        int slot = find(key);
+
+        if (keys[slot] == null) {
+            slot = insert(key, slot);
+        }
+
+        values[slot] = value;
+    }
+
+    /**
+     * Adds an amount to the value of a word in place. A word that is not in the map is inserted with the
+     * amount as its value.
+     *
+     * @param key    the word.
+     * @param amount the amount to add.
+     * @return the new value of the word.
+     */
+    double add(String key, double amount) {
+
+        int slot = find(key);
+
+        if (keys[slot] == null) {
+            slot = insert(key, slot);
+        }
+
+        return values[slot] += amount;
+    }
+
+    /**
+     * Removes a word, moving back the words of its probe sequence so no tombstones are needed.
+     *
+     * @param key the word.
+     * @return true if the word was in the map.
+     */
+    boolean remove(String key) {
+
+        int mask = keys.length - 1;
+        int slot = find(key);
+
+        if (keys[slot] == null) {
+            return false;
+        }
+
+        int free = slot;
+
+        for (int next = (free + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+
+        keys[free] = null;
+        values[free] = 0.0;
+        --size;
+
+        return true;
+    }
+
+    /**
+     * Inserts a word in a free slot, doubling the slots first if the map is three quarters full.
+     *
+     * @return the slot of the word.
+     */
+    private int insert(String key, int slot) {
+
+        if ((size + 1) * 4 > keys.length * 3) {
+            grow();
+            slot = find(key);
+        }
+
+        keys[slot] = key;
+        ++size;
+
+        return slot;
+    }
+
+    /**
+     * Doubles the number of slots and inserts again all the words.
+     */
+    private void grow() {
+
+        String[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        --shift;
+
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != null) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return A copy of the map whose values can be changed without changing this one (the words are shared).
+     */
+    StringDoubleMap copy() {
+
+        StringDoubleMap copy = new StringDoubleMap(0);
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.values = Arrays.copyOf(values, values.length);
+        copy.size = size;
+        copy.shift = shift;
+
+        return copy;
+    }
+
+    /**
+     * @return The number of words.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of slots, to iterate the map with keyAt and valueAt.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot the slot.
+     * @return The word of the slot (null if the slot is free).
+     */
+    String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot the slot.
+     * @return The value of the slot.
+     */
+    double valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Sets the value of the word of a slot in place.
+     *
+     * @param slot  the slot (with a word).
+     * @param value the new value.
+     */
+    void setValueAt(int slot, double value) {
+        values[slot] = value;
+    }
+
+}
@@ -0,0 +1,249 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+class TermDictionary implements Serializable {
+
+    private String[] terms;
+
+    /**
+     * Creates a new TermDictionary object with all the stem words of the collection sorted in lexicographic
+     * order, so ranges of words sharing a prefix are contiguous and can be found with a binary search.
+     *
+     * @param words the words of the Index.
+     */
+    TermDictionary(Collection<String> words) {
+
+        terms = words.toArray(new String[words.size()]);
+        Arrays.sort(terms);
+    }
+
+    /**
+     * Returns all the words of the dictionary that start with the given prefix.
+     *
+     * @param prefix        the prefix of the words.
+     * @param maxExpansions the maximum number of words that will be returned.
+     * @return an array with the words that start with the prefix.
+     */
+    ArrayList<String> expandPrefix(String prefix, int maxExpansions) {
+
+        ArrayList<String> expansions = new ArrayList<>();
+        int end = upperBound(prefix);
+
+        for (int i = lowerBound(prefix); i < end && expansions.size() < maxExpansions; ++i) {
+            expansions.add(terms[i]);
+        }
+
+        return expansions;
+    }
+
+    /**
+     * Returns all the words of the dictionary that match a pattern where '*' matches any sequence of characters
+     * and '?' matches exactly one character. Only the range of words that share the literal prefix of the pattern
+     * is visited.
+     *
+     * @param pattern       the pattern of the words.
+     * @param maxExpansions the maximum number of words that will be returned.
+     * @return an array with the words that match the pattern.
+     */
+    ArrayList<String> expandWildcard(String pattern, int maxExpansions) {
+
+        ArrayList<String> expansions = new ArrayList<>();
+        int literal = 0;
+
+        while (literal < pattern.length() && pattern.charAt(literal) != '*' && pattern.charAt(literal) != '?') {
+            ++literal;
+        }
+
+        String prefix = pattern.substring(0, literal);
+        int end = upperBound(prefix);
+
+        for (int i = lowerBound(prefix); i < end && expansions.size() < maxExpansions; ++i) {
+            if (matches(pattern, terms[i])) {
+                expansions.add(terms[i]);
+            }
+        }
+
+        return expansions;
+    }
+
+    /**
+     * Returns the words of the dictionary within a maximum edit distance of the given word, nearest first.
+     * <p>
+     * The dictionary is walked in order with a Levenshtein automaton: the automaton states of the common prefix
+     * with the previous word are reused and, as soon as a prefix can no longer be accepted, the whole range of
+     * words that share it is skipped.
+     *
+     * @param word          the word to search.
+     * @param maxEdits      the maximum edit distance (1 or 2).
+     * @param maxExpansions the maximum number of words that will be returned.
+     * @return an array with the nearest words to the given word.
+     */
+    ArrayList<String> expandFuzzy(String word, int maxEdits, int maxExpansions) {
+
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(word, maxEdits);
+        ArrayList<Pair<String, Integer>> matches = new ArrayList<>();
+        int[][] states = new int[1][];
+        states[0] = automaton.start();
+        String previous = "";
+        int i = 0;
+
+        while (i < terms.length) {
+
+            String term = terms[i];
+            int depth = commonPrefix(previous, term);
+
+            if (states.length <= term.length()) {
+                states = Arrays.copyOf(states, term.length() + 1);
+            }
+
+            boolean dead = false;
+
+            while (depth < term.length()) {
+                states[depth + 1] = automaton.step(states[depth], term.charAt(depth));
+                ++depth;
+
+                if (!automaton.canMatch(states[depth])) {
+                    dead = true;
+                    break;
+                }
+            }
+
+            if (dead) {
+                String prefix = term.substring(0, depth);
+                previous = prefix;
+                i = upperBound(prefix);
+                continue;
+            }
+
+            if (automaton.isMatch(states[depth])) {
+                matches.add(new Pair<>(term, automaton.distance(states[depth])));
+            }
+
+            previous = term;
+            ++i;
+        }
+
+        matches.sort((a, b) -> a.getSecond() - b.getSecond());
+        ArrayList<String> expansions = new ArrayList<>();
+
+        for (int j = 0; j < matches.size() && j < maxExpansions; ++j) {
+            expansions.add(matches.get(j).getFirst());
+        }
+
+        return expansions;
+    }
+
+    /**
+     * @return The number of words of the dictionary.
+     */
+    int size() {
+        return terms.length;
+    }
+
+    /**
+     * @param id the position of the word in the dictionary.
+     * @return The word at that position.
+     */
+    String get(int id) {
+        return terms[id];
+    }
+
+    /**
+     * @param word the word to search.
+     * @return The position of the word in the dictionary or -1 if the word is not in the dictionary.
+     */
+    int indexOf(String word) {
+
+        int position = Arrays.binarySearch(terms, word);
+        return position < 0 ? -1 : position;
+    }
+
+    /**
+     * @return The position of the first word that is greater or equal than the prefix.
+     */
+    private int lowerBound(String prefix) {
+
+        int low = 0, high = terms.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return The position of the first word after all the words that start with the prefix.
+     */
+    private int upperBound(String prefix) {
+
+        int low = lowerBound(prefix), high = terms.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return The length of the common prefix of both words.
+     */
+    private static int commonPrefix(String a, String b) {
+
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            ++i;
+        }
+
+        return i;
+    }
+
+    /**
+     * Checks if a word matches a wildcard pattern, backtracking only to the last '*' seen.
+     *
+     * @param pattern the pattern with '*' and '?' wildcards.
+     * @param word    the word to check.
+     * @return true if the word matches the pattern.
+     */
+    private static boolean matches(String pattern, String word) {
+
+        int p = 0, w = 0, star = -1, mark = 0;
+
+        while (w < word.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == word.charAt(w))) {
+                ++p;
+                ++w;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = w;
+            } else if (star != -1) {
+                p = star + 1;
+                w = ++mark;
+            } else {
+                return false;
+            }
+        }
+
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            ++p;
+        }
+
+        return p == pattern.length();
+    }
+
+}
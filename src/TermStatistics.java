@@ -0,0 +1,233 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+class TermStatistics implements Serializable {
+
+    private int capacity;
+    private StringIntMap slots;
+    private String[] words;
+    private long[] counts, errors;
+    private int[] heap, positions;
+    private int size;
+
+    /**
+     * Creates a new TermStatistics object that counts the frequency of the words of the collection.
+     * <p>
+     * With a capacity of 0 every word is counted exactly. Otherwise it is a Space-Saving sketch that keeps only
+     * the counters of 'capacity' words: when a new word arrives and there is no free counter, it replaces the
+     * word with the lowest count and inherits that count. The frequency of any word that appears more than
+     * total / capacity times is never underestimated, so the top words are kept with a fixed memory footprint.
+     * The error of each counter (the count it inherited) is kept, so its frequency is at least count - error.
+     *
+     * @param capacity the maximum number of counters (0: exact counting).
+     */
+    TermStatistics(int capacity) {
+
+        this.capacity = capacity;
+        clear();
+    }
+
+    /**
+     * Removes all the counters.
+     */
+    void clear() {
+
+        int initial = capacity == 0 ? 16 : capacity;
+        slots = new StringIntMap(initial);
+        words = new String[initial];
+        counts = new long[initial];
+        errors = new long[initial];
+        heap = new int[initial];
+        positions = new int[initial];
+        size = 0;
+    }
+
+    /**
+     * Counts an occurrence of a word.
+     *
+     * @param word the word.
+     */
+    void add(String word) {
+        add(word, 1, 0);
+    }
+
+    /**
+     * Counts a number of occurrences of a word.
+     *
+     * @param word  the word.
+     * @param count the number of occurrences.
+     * @param error the maximum overestimation of the count.
+     */
+    private void add(String word, long count, long error) {
+
+        int slot = slots.get(word, -1);
+
+        if (slot == -1) {
+
+            if (size == words.length && capacity == 0) {
+                grow();
+            }
+
+            if (size < words.length) {
+                slot = size;
+                heap[size] = slot;
+                positions[slot] = size;
+                counts[slot] = 0;
+                errors[slot] = 0;
+                ++size;
+            } else {
+                slot = heap[0]; //The word with the lowest count is replaced and its count becomes the error
+                slots.remove(words[slot]);
+                errors[slot] = counts[slot];
+            }
+
+            words[slot] = word;
+            slots.put(word, slot);
+        }
+
+        counts[slot] += count;
+        errors[slot] += error;
+        siftUp(positions[slot]);
+        siftDown(positions[slot]);
+    }
+
+    /**
+     * Adds the counters of another TermStatistics object (for example, the one of another thread) to this one.
+     * If this is a sketch and the result does not fit, the words with the lowest counts are replaced. The errors
+     * of the other counters are carried with their counts, so count - error is still a lower bound of each
+     * frequency, although the errors of both sketches add up.
+     *
+     * @param other the statistics to add.
+     */
+    void merge(TermStatistics other) {
+
+        for (int i = 0; i < other.size; ++i) {
+            add(other.words[i], other.counts[i], other.errors[i]);
+        }
+    }
+
+    /**
+     * @param word the word.
+     * @return The maximum overestimation of the frequency of the word (0 if it is counted exactly or it is not
+     * counted).
+     */
+    long getError(String word) {
+
+        int slot = slots.get(word, -1);
+        return slot == -1 ? 0 : errors[slot];
+    }
+
+    /**
+     * Returns the words with the highest frequency without sorting all of them: the candidates are selected
+     * with a heap of size number.
+     *
+     * @param number the number of words.
+     * @return an array with the top words and their frequencies sorted highest to lowest (by frequency).
+     */
+    ArrayList<Pair<String, Double>> getTopWords(int number) {
+
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Long.compare(counts[a], counts[b]));
+
+        for (int slot = 0; slot < size; ++slot) {
+            if (top.size() < number) {
+                top.add(slot);
+            } else if (number > 0 && counts[slot] > counts[top.peek()]) {
+                top.poll();
+                top.add(slot);
+            }
+        }
+
+        ArrayList<Pair<String, Double>> array = new ArrayList<>();
+
+        while (!top.isEmpty()) {
+            int slot = top.poll();
+            array.add(0, new Pair<>(words[slot], (double) counts[slot]));
+        }
+
+        return array;
+    }
+
+    /**
+     * @return The number of counters in use.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the number of counters (only in exact mode).
+     */
+    private void grow() {
+
+        int length = words.length * 2;
+        words = Arrays.copyOf(words, length);
+        counts = Arrays.copyOf(counts, length);
+        errors = Arrays.copyOf(errors, length);
+        heap = Arrays.copyOf(heap, length);
+        positions = Arrays.copyOf(positions, length);
+    }
+
+    /**
+     * Moves up the counter in a position of the heap until its parent has a lower count.
+     *
+     * @param position the position in the heap.
+     */
+    private void siftUp(int position) {
+
+        if (capacity == 0) {
+            return;
+        }
+
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+
+            if (counts[heap[parent]] <= counts[heap[position]]) {
+                return;
+            }
+
+            int slot = heap[position];
+            heap[position] = heap[parent];
+            heap[parent] = slot;
+            positions[heap[position]] = position;
+            positions[heap[parent]] = parent;
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves down the counter in a position of the heap until its children have greater counts.
+     *
+     * @param position the position in the heap.
+     */
+    private void siftDown(int position) {
+
+        if (capacity == 0) {
+            return; //The heap is only needed to find the counter to replace
+        }
+
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1, right = left + 1;
+
+            if (left < size && counts[heap[left]] < counts[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && counts[heap[right]] < counts[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+
+            int slot = heap[position];
+            heap[position] = heap[smallest];
+            heap[smallest] = slot;
+            positions[heap[position]] = position;
+            positions[heap[smallest]] = smallest;
+            position = smallest;
+        }
+    }
+
+}
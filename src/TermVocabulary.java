@@ -0,0 +1,93 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+
+class TermVocabulary implements Serializable {
+
+    private ArrayList<String> terms;
+    private StringIntMap ids;
+
+    /**
+     * Creates a new TermVocabulary object that gives an int id to each stem word of the documents, so the
+     * documents store the ids instead of their own copies of the words:
+     * <p>
+     * 1- Terms: the word of each id, in the order they were added.
+     * 2- Ids: the id of each word.
+     */
+    TermVocabulary() {
+
+        terms = new ArrayList<>();
+        ids = new StringIntMap();
+    }
+
+    /**
+     * Returns the id of a word, adding it if it is new.
+     *
+     * @param word the word.
+     * @return the id of the word.
+     */
+    int add(String word) {
+
+        int id = ids.get(word, -1);
+
+        if (id == -1) {
+            id = terms.size();
+            ids.put(word, id);
+            terms.add(word);
+        }
+
+        return id;
+    }
+
+    /**
+     * @param word the word.
+     * @return The id of the word or -1 if it is not in the vocabulary.
+     */
+    int indexOf(String word) {
+        return ids.get(word, -1);
+    }
+
+    /**
+     * @param words some words.
+     * @return The id of each word (-1 for the words that are not in the vocabulary).
+     */
+    int[] indexOf(String[] words) {
+
+        int[] ids = new int[words.length];
+
+        for (int i = 0; i < words.length; ++i) {
+            ids[i] = indexOf(words[i]);
+        }
+
+        return ids;
+    }
+
+    /**
+     * @param id the id of a word.
+     * @return The word.
+     */
+    String get(int id) {
+        return terms.get(id);
+    }
+
+    /**
+     * @return The number of words.
+     */
+    int size() {
+        return terms.size();
+    }
+
+    /**
+     * @return The words of the vocabulary sorted by id.
+     */
+    ArrayList<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return The number of slots of the map of ids.
+     */
+    int capacity() {
+        return ids.capacity();
+    }
+
+}
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+class TopScores {
+
+    private int[] scores, heap, positions;
+    private int size;
+
+    /**
+     * Creates a new TopScores object that keeps the documents with the highest partial scores while the scores
+     * only grow, so the lowest of them is always known without sorting all the documents:
+     * <p>
+     * 1- Scores: the partial score of each document (updated by the caller).
+     * 2- Heap: a min-heap of the top documents (by score).
+     * 3- Positions: the position of each document in the heap (-1 if it is not in the top).
+     *
+     * @param scores   the partial score of each document.
+     * @param capacity the number of top documents kept.
+     */
+    TopScores(int[] scores, int capacity) {
+
+        this.scores = scores;
+        heap = new int[capacity];
+        positions = new int[scores.length];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Updates the top after the score of a document has grown: the document moves down the heap if it was in
+     * the top, or replaces the lowest document if its score is now greater. A document outside the top never
+     * has a greater score than the lowest one in it.
+     *
+     * @param document the id of the document.
+     */
+    void update(int document) {
+
+        if (positions[document] != -1) {
+            siftDown(positions[document]);
+        } else if (size < heap.length) {
+            heap[size] = document;
+            positions[document] = size;
+            siftUp(size++);
+        } else if (scores[document] > scores[heap[0]]) {
+            positions[heap[0]] = -1;
+            heap[0] = document;
+            positions[document] = 0;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return The number of documents in the top.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The lowest score of the top (0 if it is empty).
+     */
+    int lowest() {
+        return size == 0 ? 0 : scores[heap[0]];
+    }
+
+    /**
+     * @return The second lowest score of the top (the lowest one if it has only one document).
+     */
+    int secondLowest() {
+
+        if (size < 3) {
+            return scores[heap[size - 1]];
+        }
+
+        return Math.min(scores[heap[1]], scores[heap[2]]);
+    }
+
+    /**
+     * @return The documents of the top sorted highest to lowest (by score, and by id if there is a tie).
+     */
+    int[] sorted() {
+
+        Integer[] documents = new Integer[size];
+
+        for (int i = 0; i < size; ++i) {
+            documents[i] = heap[i];
+        }
+
+        Arrays.sort(documents, (a, b) -> scores[a] != scores[b] ? scores[b] - scores[a] : a - b);
+
+        return Arrays.stream(documents).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Moves up the document in a position of the heap until its parent has a lower score.
+     *
+     * @param position the position in the heap.
+     */
+    private void siftUp(int position) {
+
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+
+            if (scores[heap[parent]] <= scores[heap[position]]) {
+                return;
+            }
+
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves down the document in a position of the heap until its children have greater scores.
+     *
+     * @param position the position in the heap.
+     */
+    private void siftDown(int position) {
+
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+
+            if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+                ++child;
+            }
+
+            if (scores[heap[position]] <= scores[heap[child]]) {
+                return;
+            }
+
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    /**
+     * Swaps the documents in two positions of the heap.
+     */
+    private void swap(int a, int b) {
+
+        int document = heap[a];
+        heap[a] = heap[b];
+        heap[b] = document;
+        positions[heap[a]] = a;
+        positions[heap[b]] = b;
+    }
+
+}
@@ -1,20 +1,25 @@
 import java.io.*;
 
 import org.apache.commons.io.FilenameUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 import org.tartarus.snowball.ext.spanishStemmer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.text.Normalizer;
 import java.util.*;
 
-class Utils {
+class Utils implements Serializable {
 
     private Index index;
-    private HashMap<String, Double> wordsFrequency;
+    private TermStatistics wordsFrequency;
     private Set<String> stopWords;
     private Pair<String, Integer> maxFrequency, minFrequency;
+    private NearDuplicateDetector duplicateDetector;
+    private boolean collapseDuplicates;
+    private int numberOfDuplicates;
+    private HashMap<String, Integer> surfaceForms;
+    private HashMap<String, HashSet<String>> documentSurfaceForms;
+    private transient ArrayList<BuildOperation> journal;
 
     /**
      * Creates a new Index object with:
@@ -25,8 +30,17 @@ class Utils {
      * 4- Min: the document with the minimum number of tokens.
      */
     Utils() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Creates a new Utils object whose collection statistics keep at most a number of counters.
+     *
+     * @param statisticsCapacity the maximum number of counters of the words frequency (0: exact counting).
+     */
+    Utils(int statisticsCapacity) throws IOException {
 
-        wordsFrequency = new HashMap<>();
+        wordsFrequency = new TermStatistics(statisticsCapacity);
         stopWords = new HashSet<>();
         index = new Index();
         loadStopWords();
@@ -35,24 +49,14 @@ class Utils {
     }
 
     /**
-     * Returns a Document object with all the information of a HTML document. The text without HTML tags
-     * can be obtained by using the method .text() on the returned object.
+     * Extracts the title, the paragraphs and the text without HTML tags of a HTML document already read.
      *
-     * @param path path where the document is located.
-     * @return a Document object of the document.
+     * @param content the content of the document.
+     * @param charset the charset of the document if it does not declare one.
+     * @return a HtmlDocument object with the text of the document.
      */
-    private Document extractText(String path) throws Exception {
-
-        FileReader reader = new FileReader(path);
-        StringBuilder sb = new StringBuilder();
-        BufferedReader br = new BufferedReader(reader);
-        String line;
-
-        while ((line = br.readLine()) != null) {
-            sb.append(line);
-        }
-
-        return Jsoup.parse(sb.toString());
+    HtmlDocument parseDocument(ByteBuffer content, Charset charset) {
+        return HtmlDocument.parse(content, charset);
     }
 
     /**
@@ -71,44 +75,58 @@ class Utils {
     }
 
     /**
-     * Removes all HTML tags from a document and clean the resultant text of capital
-     * letters, special characters and accent marks. Writing a word per line in a
-     * document in the directory "results".
+     * Cleans the text of a document (without HTML tags) of capital letters, special characters and
+     * accent marks. Writing a word per line in a document in the directory "results".
      *
-     * @param path the path where the document is located.
+     * @param path     the path where the document is located.
+     * @param document the text of the document.
      * @return the number of tokens of the document.
      */
-    int extractTokens(File path) throws Exception {
+    int extractTokens(File path, HtmlDocument document) throws Exception {
 
-        String text = extractText(path.getAbsolutePath()).text();
+        String text = document.getText();
         text = cleanText(text);
         String words[] = text.split("\\s+");
-        int numberOfTokens = 0;
+        ArrayList<String> tokens = new ArrayList<>();
 
         try (FileWriter fw = new FileWriter("results\\" + FilenameUtils.removeExtension(path.getName()) + ".txt")) {
             for (String word : words) {
                 if (!word.equals("-")) {
                     fw.write(word + "\r\n");
-                    ++numberOfTokens;
-                    if (this.wordsFrequency.get(word) == null) {
-                        this.wordsFrequency.put(word, 1.0);
-                    } else {
-                        this.wordsFrequency.replace(word, this.wordsFrequency.get(word) + 1.0);
-                    }
+                    tokens.add(word);
                 }
             }
         }
 
-        if (numberOfTokens < minFrequency.getSecond()) {
-            minFrequency.setSecond(numberOfTokens);
-            minFrequency.setFirst(path.getName());
+        String[] array = tokens.toArray(new String[0]);
+        record(BuildOperation.TOKENS, path.getName(), array, null, null);
+
+        return countTokens(path.getName(), array);
+    }
+
+    /**
+     * Counts the tokens of a document in the statistics of the collection.
+     *
+     * @param name   the name of the document.
+     * @param tokens the tokens of the document.
+     * @return the number of tokens.
+     */
+    private int countTokens(String name, String[] tokens) {
+
+        for (String token : tokens) {
+            this.wordsFrequency.add(token);
+        }
+
+        if (tokens.length < minFrequency.getSecond()) {
+            minFrequency.setSecond(tokens.length);
+            minFrequency.setFirst(name);
         }
-        if (numberOfTokens > maxFrequency.getSecond()) {
-            maxFrequency.setSecond(numberOfTokens);
-            maxFrequency.setFirst(path.getName());
+        if (tokens.length > maxFrequency.getSecond()) {
+            maxFrequency.setSecond(tokens.length);
+            maxFrequency.setFirst(name);
         }
 
-        return numberOfTokens;
+        return tokens.length;
     }
 
     /**
@@ -217,15 +235,29 @@ class Utils {
             for (int i = 0; i < words.length; ++i) {
                 if (!stopWords.contains(words[i])) {
                     fw.write(words[i] + "\r\n");
-                    if (this.wordsFrequency.get(words[i]) == null) {
-                        this.wordsFrequency.put(words[i], 1.0);
-                    } else {
-                        this.wordsFrequency.replace(words[i], this.wordsFrequency.get(words[i]) + 1.0);
-                    }
                 }
             }
         }
 
+        record(BuildOperation.STOP_WORDS, path.getName(), words, null, null);
+
+        return countWithoutStopWords(words);
+    }
+
+    /**
+     * Counts the non stop words of a document in the statistics of the collection.
+     *
+     * @param words the words of the document without stop words.
+     * @return the number of words.
+     */
+    private int countWithoutStopWords(String[] words) {
+
+        for (int i = 0; i < words.length; ++i) {
+            if (!stopWords.contains(words[i])) {
+                this.wordsFrequency.add(words[i]);
+            }
+        }
+
         if (words.length < minFrequency.getSecond()) {
             minFrequency.setSecond(words.length);
         }
@@ -261,8 +293,31 @@ class Utils {
         }
     }
 
+    /**
+     * Enables the detection of near duplicate documents while the stem words are loaded in the Index. The near
+     * duplicates are not indexed and, if they are collapsed, they are listed with their original document.
+     *
+     * @param threshold the minimum estimated Jaccard similarity between near duplicates.
+     * @param collapse  true to list the near duplicates with their original document, false to drop them.
+     */
+    void setDuplicateDetection(double threshold, boolean collapse) {
+
+        duplicateDetector = new NearDuplicateDetector(threshold);
+        collapseDuplicates = collapse;
+    }
+
+    /**
+     * @return The number of near duplicate documents found.
+     */
+    int getNumberOfDuplicates() {
+        return numberOfDuplicates;
+    }
+
     /**
      * Writes the tokens in the path 'stemmer/document.txt' after appling the stemmer in them.
+     * If the detection of near duplicates is enabled, the near duplicates are not loaded in the Index.
+     * The Index and the statistics are only changed once the file has been written, so a document that fails
+     * can be rolled back with deleteDocument.
      *
      * @param path the path where the document is located.
      * @return the number of tokens of the document.
@@ -272,24 +327,44 @@ class Utils {
         String text = getDocumentText(path);
         String[] words = text.split("\\s+");
         stemmer(words);
-        index.addWords(FilenameUtils.removeExtension(path.getName()) + ".html", words);
-
-        setFreq(path.getName(), words);
-        loadWords(words, path.getName());
         File log = new File("stemmer\\" + path.getName());
 
         try (FileWriter fw = new FileWriter(log)) {
             for (int i = 0; i < words.length; ++i) {
                 fw.write(words[i] + "\r\n");
+            }
+        }
 
-                if (this.wordsFrequency.get(words[i]) == null) {
-                    this.wordsFrequency.put(words[i], 1.0);
+        record(BuildOperation.STEM_WORDS, path.getName(), words, null, null);
 
-                } else {
+        return loadStemWords(path.getName(), words);
+    }
 
-                    this.wordsFrequency.replace(words[i], this.wordsFrequency.get(words[i]) + 1.0);
-                }
-            }
+    /**
+     * Loads the stem words of a document in the Index (unless it is a near duplicate) and counts them in the
+     * statistics of the collection.
+     *
+     * @param name  the name of the file of the document.
+     * @param words the stem words of the document.
+     * @return the number of words.
+     */
+    private int loadStemWords(String name, String[] words) {
+
+        String document = FilenameUtils.removeExtension(name) + ".html";
+        String original = duplicateDetector == null ? null : duplicateDetector.findDuplicate(document, words);
+
+        if (original == null) {
+            index.addWords(document, words);
+            setFreq(name, words);
+            loadWords(words, name);
+
+        } else {
+            index.removeDocument(document, collapseDuplicates ? original : null);
+            ++numberOfDuplicates;
+        }
+
+        for (int i = 0; i < words.length; ++i) {
+            this.wordsFrequency.add(words[i]);
         }
 
         if (words.length < minFrequency.getSecond()) {
@@ -304,43 +379,301 @@ class Utils {
     }
 
     /**
-     * Copy all the wordsFrequency with their frequencies in an ArrayList and sort them using quicksort.
+     * Gets the words with the highest frequency of the collection and resets the frequencies for the next stage.
      *
-     * @return an array with all the wordsFrequency of the collection sorted highest to lowest (by frequency).
+     * @param number the number of top words.
+     * @return an array with the top words of the collection sorted highest to lowest (by frequency).
      */
-    ArrayList<Pair<String, Double>> getTopWords() {
+    ArrayList<Pair<String, Double>> getTopWords(int number) {
 
-        ArrayList<Pair<String, Double>> array = new ArrayList<>();
+        ArrayList<Pair<String, Double>> array = wordsFrequency.getTopWords(number);
+        wordsFrequency.clear();
+
+        return array;
+    }
+
+    /**
+     * Gets all the information about a document and saves it into the Index, with the stem words of its title
+     * in the title field. If the completions are counted, also counts the words of its title and its text.
+     *
+     * @param path     the path where the document is located.
+     * @param document the text of the document.
+     */
+    void setDocumentInfo(File path, HtmlDocument document) throws Exception {
 
-        for (Map.Entry<String, Double> entry : wordsFrequency.entrySet()) {
-            Pair<String, Double> pair = new Pair<>(entry.getKey(), entry.getValue());
-            array.add(pair);
+        DocumentInfo documentInfo = new DocumentInfo(document.getTitle(), document.getParagraphs(), index.getVocabulary());
+        String[] titleWords = removeStopWords(cleanText(document.getTitle()));
+        stemmer(titleWords);
+        HashSet<String> words = surfaceForms == null ? null : getSurfaceForms(document);
+
+        addDocumentInfo(path.getName(), documentInfo, titleWords, words);
+        record(BuildOperation.DOCUMENT_INFO, path.getName(), titleWords, documentInfo, words);
+    }
+
+    /**
+     * Adds the information of a document, the stem words of its title and its words of the completions.
+     *
+     * @param name         the name of the document.
+     * @param documentInfo the information of the document.
+     * @param titleWords   the stem words of the title.
+     * @param words        the words of the completions (null if they are not counted).
+     */
+    private void addDocumentInfo(String name, DocumentInfo documentInfo, String[] titleWords, HashSet<String> words) {
+
+        index.addDocument(name, documentInfo);
+        index.addTitleWords(name, titleWords);
+
+        if (words != null) {
+            for (String word : words) {
+                surfaceForms.merge(word, 1, Integer::sum);
+            }
+
+            if (documentSurfaceForms != null) {
+                documentSurfaceForms.put(name, words);
+            }
         }
+    }
 
-        QuickSort quickSort = new QuickSort();
-        quickSort.sort(array);
-        wordsFrequency.clear();
+    /**
+     * Removes a document added with setDocumentInfo whose words have not been loaded yet, discounting exactly
+     * the words of its completions. Used to roll back a document that fails in the first stage of the build.
+     *
+     * @param path     the path where the document is located.
+     * @param document the text of the document.
+     */
+    void removeDocumentInfo(File path, HtmlDocument document) throws Exception {
 
-        return array;
+        if (!index.getDocuments().containsKey(path.getName())) {
+            return;
+        }
+
+        String[] titleWords = removeStopWords(cleanText(document.getTitle()));
+        stemmer(titleWords);
+        HashSet<String> words = surfaceForms == null ? null : getSurfaceForms(document);
+
+        removeDocumentInfo(path.getName(), titleWords, words);
+        record(BuildOperation.REMOVE_DOCUMENT_INFO, path.getName(), titleWords, null, words);
     }
 
     /**
-     * Gets all the information about a document and saves it into the Index.
+     * Removes a document whose words have not been loaded yet and discounts its words of the completions.
      *
-     * @param path the path where the document is located.
+     * @param name       the name of the document.
+     * @param titleWords the stem words of the title.
+     * @param words      the words of the completions (null if they are not counted).
      */
-    void setDocumentInfo(File path) throws Exception {
+    private void removeDocumentInfo(String name, String[] titleWords, HashSet<String> words) {
 
-        Document document = extractText(path.getAbsolutePath());
+        if (words != null) {
+            discountSurfaceForms(words);
 
-        StringBuilder sb = new StringBuilder();
-        for(Element element : document.select("p")) {
-            sb.append(element.text());
-            sb.append(" ");
+            if (documentSurfaceForms != null) {
+                documentSurfaceForms.remove(name);
+            }
+        }
+
+        index.deleteDocument(name, titleWords);
+    }
+
+    /**
+     * Discounts a document from the number of documents that contain each of its words of the completions.
+     *
+     * @param words the words of the completions of the document.
+     */
+    private void discountSurfaceForms(Set<String> words) {
+
+        for (String word : words) {
+            surfaceForms.computeIfPresent(word, (key, count) -> count > 1 ? count - 1 : null);
         }
+    }
+
+    /**
+     * @param document the text of a document.
+     * @return The different words of the title and the text of the document, without stop words.
+     */
+    private HashSet<String> getSurfaceForms(HtmlDocument document) {
+
+        HashSet<String> words = new HashSet<>();
+        words.addAll(Arrays.asList(removeStopWords(cleanText(document.getTitle() + " " + document.getText()))));
+        words.remove("");
+
+        return words;
+    }
+
+    /**
+     * Indexes a single document through the three stages of the build (tokens, stop words and stemmer), used
+     * by the incremental ingestion. If the document cannot be indexed, it is removed again from the Index.
+     *
+     * @param path     the path where the document is located.
+     * @param content  the content of the document.
+     * @param charset  the charset of the document if it does not declare one.
+     * @return the number of tokens of the document after the stemmer.
+     */
+    int indexDocument(File path, ByteBuffer content, Charset charset) throws Exception {
+
+        String name = FilenameUtils.removeExtension(path.getName()) + ".txt";
+
+        try {
+            HtmlDocument document = parseDocument(content, charset);
+            setDocumentInfo(path, document);
+            extractTokens(path, document);
+            writeWithoutStopWords(new File("results\\" + name));
+
+            return writeStemWords(new File("stopper\\" + name));
+
+        } catch (Exception e) {
+            deleteDocument(path.getName());
+            throw e;
+        }
+    }
+
+    /**
+     * Removes an indexed document from the Index before calculating the weights. If the words of the
+     * completions of each document are kept, exactly those words are discounted. Otherwise only the words of
+     * its title and its sentences are discounted, because the words of the text outside the sentences are not
+     * known any more.
+     *
+     * @param name the name of the document.
+     * @return true if the document was in the Index.
+     */
+    boolean deleteDocument(String name) throws Exception {
+
+        if (!removeDocument(name)) {
+            return false;
+        }
+
+        record(BuildOperation.DELETE, name, null, null, null);
+
+        return true;
+    }
+
+    /**
+     * Removes an indexed document from the Index, as deleteDocument does, without recording it.
+     *
+     * @param name the name of the document.
+     * @return true if the document was in the Index.
+     */
+    private boolean removeDocument(String name) throws Exception {
+
+        DocumentInfo documentInfo = index.getDocuments().get(name);
+
+        if (documentInfo == null) {
+            return false;
+        }
+
+        String[] titleWords = removeStopWords(cleanText(documentInfo.getTitle()));
+        stemmer(titleWords);
 
-        DocumentInfo documentInfo = new DocumentInfo(document.title(), sb.toString());
-        index.addDocument(path.getName(), documentInfo);
+        if (documentSurfaceForms != null) {
+            HashSet<String> words = documentSurfaceForms.remove(name);
+
+            if (words != null) {
+                discountSurfaceForms(words);
+            }
+
+        } else if (surfaceForms != null) {
+            HashSet<String> words = new HashSet<>();
+            words.addAll(Arrays.asList(removeStopWords(cleanText(documentInfo.getTitle() + " "
+                    + String.join(" ", documentInfo.getPhrases())))));
+            words.remove("");
+            discountSurfaceForms(words);
+        }
+
+        return index.deleteDocument(name, titleWords);
+    }
+
+    /**
+     * Starts recording the changes of the build, so they can be saved in the next checkpoint as a segment
+     * instead of saving all the Utils again. Any change recorded before is forgotten.
+     */
+    void startJournal() {
+        journal = new ArrayList<>();
+    }
+
+    /**
+     * Returns the changes recorded since the last call and starts recording again.
+     *
+     * @return the changes recorded, in the order they were made (empty if they are not recorded).
+     */
+    ArrayList<BuildOperation> takeJournal() {
+
+        ArrayList<BuildOperation> operations = journal == null ? new ArrayList<>() : journal;
+        journal = new ArrayList<>();
+
+        return operations;
+    }
+
+    /**
+     * Replays the changes saved in a checkpoint segment, without recording them again.
+     *
+     * @param terms      the words added to the TermVocabulary since the previous segment, in order.
+     * @param operations the changes of the segment, in order.
+     */
+    void replay(ArrayList<String> terms, ArrayList<BuildOperation> operations) throws Exception {
+
+        for (String term : terms) {
+            index.getVocabulary().add(term);
+        }
+
+        for (BuildOperation operation : operations) {
+            switch (operation.getType()) {
+                case BuildOperation.DOCUMENT_INFO:
+                    addDocumentInfo(operation.getName(), operation.getDocumentInfo(), operation.getWords(),
+                            operation.getSurfaceForms());
+                    break;
+                case BuildOperation.REMOVE_DOCUMENT_INFO:
+                    removeDocumentInfo(operation.getName(), operation.getWords(), operation.getSurfaceForms());
+                    break;
+                case BuildOperation.TOKENS:
+                    countTokens(operation.getName(), operation.getWords());
+                    break;
+                case BuildOperation.STOP_WORDS:
+                    countWithoutStopWords(operation.getWords());
+                    break;
+                case BuildOperation.STEM_WORDS:
+                    loadStemWords(operation.getName(), operation.getWords());
+                    break;
+                default:
+                    removeDocument(operation.getName());
+            }
+        }
+    }
+
+    /**
+     * Records a change of the build if the changes are being recorded.
+     */
+    private void record(int type, String name, String[] words, DocumentInfo documentInfo, HashSet<String> surfaceForms) {
+
+        if (journal != null) {
+            journal.add(new BuildOperation(type, name, words, documentInfo, surfaceForms));
+        }
+    }
+
+    /**
+     * Enables the counting of the words of the titles and the texts (without stemming and without stop words)
+     * in setDocumentInfo, used to build the completions of the Index and to show the spelling suggestions as
+     * words instead of stems.
+     */
+    void setCompletionCounting() {
+        surfaceForms = new HashMap<>();
+    }
+
+    /**
+     * Keeps the words of the completions of each document while they are counted, so a document removed from
+     * the Index discounts exactly the words it added. Used by the incremental ingestion, where the documents
+     * are changed and deleted for as long as it runs; it must be called after setCompletionCounting and
+     * before adding any document.
+     */
+    void setDocumentCompletionCounting() {
+        documentSurfaceForms = new HashMap<>();
+    }
+
+    /**
+     * @return The words of the titles and the texts of the documents and the number of documents that contain
+     * each one (null if they are not counted).
+     */
+    HashMap<String, Integer> getSurfaceForms() {
+        return surfaceForms;
     }
 
     /**
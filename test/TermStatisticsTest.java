@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+
+class TermStatisticsTest {
+
+    /**
+     * Runs the tests of TermStatistics (the repository has no test framework, so a failed check throws an
+     * AssertionError and the process ends with an error).
+     */
+    public static void main(String[] args) {
+
+        heaviestWordIsNotEvicted();
+        mergeCarriesTheErrors();
+        System.out.println("TermStatisticsTest: OK.");
+    }
+
+    /**
+     * A new counter must be moved up in the heap: otherwise, once the sketch is full, the counter replaced is
+     * not the one with the lowest count and the heaviest word can be evicted.
+     */
+    private static void heaviestWordIsNotEvicted() {
+
+        TermStatistics statistics = new TermStatistics(3);
+
+        for (int i = 0; i < 100; ++i) {
+            statistics.add("top");
+        }
+        statistics.add("b");
+        statistics.add("c");
+        statistics.add("d");
+
+        ArrayList<Pair<String, Double>> top = statistics.getTopWords(3);
+
+        check(top.get(0).getFirst().equals("top"), "'top' is the first word: " + top);
+        check(top.get(0).getSecond() == 100.0, "'top' is counted 100 times: " + top);
+        check(statistics.getError("top") == 0, "'top' has no error");
+        check(statistics.getError("d") == 1, "'d' inherits the count of the word it replaces");
+    }
+
+    /**
+     * The errors of the counters of another sketch are kept when it is merged.
+     */
+    private static void mergeCarriesTheErrors() {
+
+        TermStatistics first = new TermStatistics(2), second = new TermStatistics(2);
+
+        for (int i = 0; i < 10; ++i) {
+            first.add("a");
+        }
+        second.add("b");
+        second.add("c");
+        second.add("c");
+        second.add("d");
+
+        first.merge(second);
+
+        for (Pair<String, Double> word : first.getTopWords(2)) {
+            check(word.getSecond() - first.getError(word.getFirst()) <= (word.getFirst().equals("a") ? 10 : 2),
+                    "count - error is a lower bound of '" + word.getFirst() + "'");
+        }
+        check(first.getTopWords(1).get(0).getFirst().equals("a"), "'a' is the top word");
+    }
+
+    private static void check(boolean condition, String message) {
+
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+}